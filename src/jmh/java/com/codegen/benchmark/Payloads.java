@@ -0,0 +1,107 @@
+package com.codegen.benchmark;
+
+import com.codegen.config.ObjectMapperConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Данные для бенчмарков: сгенерированный исходник заданного размера и ответы LLM вокруг него
+ */
+public final class Payloads {
+
+    public static final ObjectMapper OBJECT_MAPPER = new ObjectMapperConfig().objectMapper();
+
+    private static final String[] LINES = {
+            "    /**",
+            "     * Обработка заказа и пересчет итоговой суммы",
+            "     */",
+            "    public OrderTotal recalculate(Order order, List<Discount> discounts) {",
+            "        BigDecimal total = order.getItems().stream()",
+            "                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))",
+            "                .reduce(BigDecimal.ZERO, BigDecimal::add);",
+            "        for (Discount discount : discounts) {",
+            "            total = discount.apply(total);",
+            "        }",
+            "        return new OrderTotal(order.getId(), total);",
+            "    }",
+            ""
+    };
+
+    private Payloads() {
+    }
+
+    /**
+     * Java-исходник примерно заданного размера в байтах
+     */
+    public static String source(int bytes) {
+        StringBuilder source = new StringBuilder(bytes + 128);
+        source.append("package com.generated.java;\n\npublic class GeneratedService {\n");
+        int line = 0;
+        while (source.length() < bytes) {
+            source.append(LINES[line++ % LINES.length]).append('\n');
+        }
+        return source.append("}\n").toString();
+    }
+
+    /**
+     * Исходник в markdown-блоке, как его возвращает модель
+     */
+    public static String markdown(String source) {
+        return "```java\n" + source + "```";
+    }
+
+    /**
+     * Ответ chat completions с исходником в поле content
+     */
+    public static String completionResponse(String source) {
+        ObjectNode response = OBJECT_MAPPER.createObjectNode();
+        response.put("id", "chatcmpl-benchmark");
+        response.put("object", "chat.completion");
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        ObjectNode message = choice.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", markdown(source));
+        choice.put("finish_reason", "stop");
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", 512);
+        usage.put("completion_tokens", source.length() / 4);
+        usage.put("total_tokens", 512 + source.length() / 4);
+        return response.toString();
+    }
+
+    /**
+     * JSON ошибок валидации
+     */
+    public static String errorsJson(int count) {
+        ArrayNode errors = OBJECT_MAPPER.createArrayNode();
+        for (int i = 0; i < count; i++) {
+            ObjectNode error = errors.addObject();
+            error.put("type", i % 2 == 0 ? "STYLE" : "LOGIC");
+            error.put("message", "Possible issue detected in statement " + i + ": consider null handling");
+            error.put("line", 10 + i * 3);
+            error.put("severity", i % 3 == 0 ? "HIGH" : "MEDIUM");
+        }
+        return errors.toString();
+    }
+
+    /**
+     * JSON предложений по оптимизации с фрагментами кода из исходника
+     */
+    public static String suggestionsJson(String source, int count) {
+        ArrayNode suggestions = OBJECT_MAPPER.createArrayNode();
+        int fragment = Math.max(64, source.length() / (count * 4));
+        for (int i = 0; i < count; i++) {
+            int start = (i * fragment) % Math.max(1, source.length() - fragment);
+            String current = source.substring(start, Math.min(source.length(), start + fragment));
+            ObjectNode suggestion = suggestions.addObject();
+            suggestion.put("type", "PERFORMANCE");
+            suggestion.put("description", "Replace stream reduction with a plain loop in hot path " + i);
+            suggestion.put("currentCode", current);
+            suggestion.put("suggestedCode", current.replace("stream()", "iterator()"));
+            suggestion.put("priority", i % 5);
+        }
+        return suggestions.toString();
+    }
+}
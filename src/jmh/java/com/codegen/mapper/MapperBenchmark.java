@@ -0,0 +1,92 @@
+package com.codegen.mapper;
+
+import com.codegen.benchmark.Payloads;
+import com.codegen.dto.GeneratedCodeDTO;
+import com.codegen.dto.ValidationReportDTO;
+import com.codegen.model.GeneratedCode;
+import com.codegen.model.ValidationReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маппинг сгенерированного кода и отчета валидации в DTO
+ * decode* - разбор JSON без кэша (отчет без id), cached* - повторная выдача того же отчета
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"10240", "102400", "1048576"})
+    private int sourceBytes;
+
+    private ValidationReportMapper reportMapper;
+    private GeneratedCodeMapper codeMapper;
+    private ValidationReport uncachedReport;
+    private ValidationReport cachedReport;
+    private GeneratedCode code;
+
+    @Setup
+    public void setUp() {
+        reportMapper = new ValidationReportMapper(Payloads.OBJECT_MAPPER, new SimpleMeterRegistry(), 1000);
+        codeMapper = new GeneratedCodeMapper(reportMapper);
+
+        String source = Payloads.source(sourceBytes);
+        String errors = Payloads.errorsJson(20);
+        String suggestions = Payloads.suggestionsJson(source, 10);
+
+        uncachedReport = report(null, errors, suggestions);
+        cachedReport = report(1L, errors, suggestions);
+
+        code = new GeneratedCode();
+        code.setId(1L);
+        code.setSourceCode(source);
+        code.setFileName("controller_generated.java");
+        code.setPackagePath("com.generated.java");
+        code.setGeneratedAt(LocalDateTime.now());
+        code.setValidationReport(cachedReport);
+    }
+
+    @Benchmark
+    public ValidationReportDTO decodeReport() {
+        return reportMapper.toDTO(uncachedReport);
+    }
+
+    @Benchmark
+    public ValidationReportDTO cachedReport() {
+        return reportMapper.toDTO(cachedReport);
+    }
+
+    @Benchmark
+    public GeneratedCodeDTO generatedCode() {
+        return codeMapper.toDTO(code);
+    }
+
+    private ValidationReport report(Long id, String errors, String suggestions) {
+        ValidationReport report = new ValidationReport();
+        report.setId(id);
+        report.setHasErrors(true);
+        report.setHasSyntaxErrors(false);
+        report.setErrorDetails(errors);
+        report.setOptimizationSuggestions(suggestions);
+        report.setQualityScore(72);
+        report.setValidatedAt(LocalDateTime.now());
+        return report;
+    }
+}
@@ -0,0 +1,46 @@
+package com.codegen.model;
+
+import com.codegen.benchmark.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подсчет строк и размера исходника при сохранении GeneratedCode
+ * (раньше выполнялся в ProjectController.mapToDTO на каждый показ списка проектов)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SourceStatsBenchmark {
+
+    @Param({"10240", "102400", "1048576"})
+    private int sourceBytes;
+
+    private GeneratedCode code;
+
+    @Setup
+    public void setUp() {
+        code = new GeneratedCode();
+        code.setSourceCode(Payloads.source(sourceBytes));
+    }
+
+    @Benchmark
+    public Integer countLines() {
+        code.onCreate();
+        return code.getLineCount();
+    }
+}
@@ -0,0 +1,63 @@
+package com.codegen.service;
+
+import com.codegen.benchmark.Payloads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение запроса к Groq, разбор ответа и очистка markdown
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AIModelServiceBenchmark {
+
+    @Param({"10240", "102400", "1048576"})
+    private int sourceBytes;
+
+    private AIModelService service;
+    private String prompt;
+    private String markdown;
+    private String response;
+
+    @Setup
+    public void setUp() {
+        //в разбираемых путях используется только ObjectMapper
+        service = new AIModelService(null, Payloads.OBJECT_MAPPER, null, null, null, null, null);
+
+        String source = Payloads.source(sourceBytes);
+        prompt = "Analyze the following Java code for errors and optimizations:\n" + source;
+        markdown = Payloads.markdown(source);
+        response = Payloads.completionResponse(source);
+    }
+
+    @Benchmark
+    public String buildRequestBody() {
+        return service.buildRequestBody(prompt, false);
+    }
+
+    @Benchmark
+    public AIModelService.Completion parseCompletion() throws IOException {
+        return service.parseCompletion(response);
+    }
+
+    @Benchmark
+    public String cleanMarkdown() {
+        return service.cleanMarkdown(markdown);
+    }
+}
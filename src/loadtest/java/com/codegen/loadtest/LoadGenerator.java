@@ -0,0 +1,317 @@
+package com.codegen.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки: отправляет требования на /api/v1/code-generation/generate с заданной частотой
+ * и опрашивает статус до завершения. Итог - задержка от запроса до готового кода (p50/p95/p99),
+ * требований в минуту и загрузка пула соединений с БД по метрикам actuator
+ *
+ * Запуск: mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--rps=2 --duration=120s"
+ */
+public class LoadGenerator {
+
+    private static final String API = "/api/v1/code-generation";
+    private static final Set<String> FINAL_STATUSES = Set.of("COMPLETED", "FAILED");
+
+    private static final String[] DESCRIPTIONS = {
+            "REST endpoint that recalculates the order total with discounts",
+            "Service that registers a user and sends a confirmation email",
+            "Controller that returns paginated products filtered by category",
+            "Scheduled job that archives orders older than ninety days"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final String baseUrl;
+    private final String mockUrl;
+    private final double rps;
+    private final Duration duration;
+    private final long userId;
+    private final String language;
+    private final String framework;
+    private final Duration pollInterval;
+    private final Duration timeout;
+
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong submitErrors = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong statusPolls = new AtomicLong();
+    private final AtomicLong lastCompletionNanos = new AtomicLong();
+
+    private final List<Double> activeConnections = Collections.synchronizedList(new ArrayList<>());
+    private final List<Double> pendingConnections = Collections.synchronizedList(new ArrayList<>());
+    private volatile double maxConnections = Double.NaN;
+
+    LoadGenerator(Arguments args) {
+        this.baseUrl = args.get("base-url", "http://localhost:8080");
+        this.mockUrl = args.get("mock-url", "http://localhost:8089");
+        this.rps = Double.parseDouble(args.get("rps", "1"));
+        this.duration = args.duration("duration", "60s");
+        this.userId = Long.parseLong(args.get("user-id", "1"));
+        this.language = args.get("language", "java");
+        this.framework = args.get("framework", "spring");
+        this.pollInterval = args.duration("poll-interval", "1s");
+        this.timeout = args.duration("timeout", "5m");
+    }
+
+    public static void main(String[] argv) throws Exception {
+        new LoadGenerator(new Arguments(argv)).run();
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("Load: %.2f req/s for %s against %s (user %d, %s/%s)%n",
+                rps, duration, baseUrl, userId, language, framework);
+
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        Thread sampler = Thread.ofVirtual().start(this::samplePool);
+
+        //открытая модель нагрузки: запросы уходят по расписанию, независимо от скорости ответов
+        long startNanos = System.nanoTime();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rps);
+        long endNanos = startNanos + duration.toNanos();
+        long sequence = 0;
+        for (long next = startNanos; next < endNanos; next += intervalNanos) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            long id = ++sequence;
+            clients.submit(() -> runRequirement(id));
+        }
+
+        clients.shutdown();
+        if (!clients.awaitTermination(timeout.toMillis() + pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+            clients.shutdownNow();
+        }
+        sampler.interrupt();
+        sampler.join();
+
+        report(startNanos);
+    }
+
+    /**
+     * Одно требование: отправка и опрос статуса до COMPLETED/FAILED
+     */
+    private void runRequirement(long sequence) {
+        long startNanos = System.nanoTime();
+        submitted.incrementAndGet();
+        try {
+            String body = objectMapper.createObjectNode()
+                    //уникальное описание, чтобы не срабатывало объединение одинаковых запросов
+                    .put("description", DESCRIPTIONS[(int) (sequence % DESCRIPTIONS.length)] + " #" + sequence)
+                    .put("language", language)
+                    .put("framework", framework)
+                    .toString();
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + API + "/generate"))
+                            .header("Content-Type", "application/json")
+                            .header("User-Id", String.valueOf(userId))
+                            .timeout(Duration.ofSeconds(30))
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 429) {
+                rejected.incrementAndGet();
+                return;
+            }
+            if (response.statusCode() != 200 && response.statusCode() != 202) {
+                submitErrors.incrementAndGet();
+                return;
+            }
+
+            long requirementId = objectMapper.readTree(response.body()).path("id").asLong();
+            long deadline = startNanos + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                Thread.sleep(pollInterval.toMillis());
+                String status = pollStatus(requirementId);
+                if (status != null && FINAL_STATUSES.contains(status)) {
+                    long now = System.nanoTime();
+                    lastCompletionNanos.accumulateAndGet(now, Math::max);
+                    if ("COMPLETED".equals(status)) {
+                        completed.incrementAndGet();
+                        latencies.add(TimeUnit.NANOSECONDS.toMillis(now - startNanos));
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                    return;
+                }
+            }
+            timedOut.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            submitErrors.incrementAndGet();
+        }
+    }
+
+    private String pollStatus(long requirementId) throws Exception {
+        statusPolls.incrementAndGet();
+        HttpResponse<String> response = httpClient.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + API + "/status/" + requirementId))
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 200
+                ? objectMapper.readTree(response.body()).path("status").asText()
+                : null;
+    }
+
+    /**
+     * Раз в секунду снимает hikaricp.connections.active/pending через actuator
+     */
+    private void samplePool() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                double active = metric("hikaricp.connections.active");
+                double pending = metric("hikaricp.connections.pending");
+                if (!Double.isNaN(active)) {
+                    activeConnections.add(active);
+                    pendingConnections.add(pending);
+                }
+                if (Double.isNaN(maxConnections)) {
+                    maxConnections = metric("hikaricp.connections.max");
+                }
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private double metric(String name) throws InterruptedException {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + name))
+                            .timeout(Duration.ofSeconds(5))
+                            .GET()
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return Double.NaN;
+            }
+            return objectMapper.readTree(response.body()).path("measurements").path(0).path("value").asDouble(Double.NaN);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    private void report(long startNanos) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        long endNanos = Math.max(lastCompletionNanos.get(), startNanos + 1);
+        double minutes = (endNanos - startNanos) / (double) TimeUnit.MINUTES.toNanos(1);
+
+        System.out.println();
+        System.out.println("=== Load test report ===");
+        System.out.printf("Submitted:        %d (rejected 429: %d, errors: %d)%n",
+                submitted.get(), rejected.get(), submitErrors.get());
+        System.out.printf("Finished:         %d completed, %d failed, %d timed out%n",
+                completed.get(), failed.get(), timedOut.get());
+        System.out.printf("Status polls:     %d%n", statusPolls.get());
+        if (!sorted.isEmpty()) {
+            System.out.printf("End-to-end (ms):  p50 %d, p95 %d, p99 %d, max %d%n",
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted.get(sorted.size() - 1));
+            System.out.printf("Throughput:       %.1f requirements/min%n", completed.get() / minutes);
+        }
+        synchronized (activeConnections) {
+            if (!activeConnections.isEmpty()) {
+                System.out.printf("DB connections:   active avg %.1f, max %.0f of %.0f; pending max %.0f%n",
+                        activeConnections.stream().mapToDouble(Double::doubleValue).average().orElse(0),
+                        activeConnections.stream().mapToDouble(Double::doubleValue).max().orElse(0),
+                        maxConnections,
+                        pendingConnections.stream().mapToDouble(Double::doubleValue).max().orElse(0));
+            } else {
+                System.out.println("DB connections:   n/a (expose the actuator metrics endpoint)");
+            }
+        }
+        printMockStats();
+    }
+
+    private void printMockStats() {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(mockUrl + "/stats")).timeout(Duration.ofSeconds(5)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode stats = objectMapper.readTree(response.body());
+            System.out.printf("Mock LLM:         %d requests, %d errors, %d throttled, %d completion tokens%n",
+                    stats.path("requests").asLong(), stats.path("errors").asLong(),
+                    stats.path("throttled").asLong(), stats.path("completionTokens").asLong());
+        } catch (Exception e) {
+            //замена Groq не запущена - прогон шел против настоящего API
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    /**
+     * Аргументы вида --name=value
+     */
+    static class Arguments {
+
+        private final Map<String, String> values = new HashMap<>();
+
+        Arguments(String[] argv) {
+            for (String arg : argv) {
+                if (arg.startsWith("--") && arg.contains("=")) {
+                    int separator = arg.indexOf('=');
+                    values.put(arg.substring(2, separator), arg.substring(separator + 1));
+                }
+            }
+        }
+
+        String get(String name, String defaultValue) {
+            return values.getOrDefault(name, defaultValue);
+        }
+
+        //10s, 500ms, 2m
+        Duration duration(String name, String defaultValue) {
+            String value = get(name, defaultValue).trim().toLowerCase();
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            char unit = value.charAt(value.length() - 1);
+            if (Character.isDigit(unit)) {
+                return Duration.ofSeconds(Long.parseLong(value));
+            }
+            long amount = Long.parseLong(value.substring(0, value.length() - 1));
+            return switch (unit) {
+                case 'm' -> Duration.ofMinutes(amount);
+                case 'h' -> Duration.ofHours(amount);
+                default -> Duration.ofSeconds(amount);
+            };
+        }
+    }
+}
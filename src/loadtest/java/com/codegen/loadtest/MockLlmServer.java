@@ -0,0 +1,263 @@
+package com.codegen.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальная замена Groq для нагрузочного тестирования, отдельный процесс рядом с приложением (профиль loadtest)
+ * OpenAI-совместимый /v1/chat/completions: задержка с логнормальным распределением,
+ * доля ошибок 5xx и 429, потоковая выдача токенов. Подключается через ai.api.url
+ *
+ * Запуск: mvn -Ploadtest test-compile exec:exec -Dloadtest.main=com.codegen.loadtest.MockLlmServer
+ *         -Dloadtest.args="--port=8089 --latency-median=800ms --error-rate=0.01"
+ */
+public class MockLlmServer {
+
+    private static final String COMPLETIONS_PATH = "/v1/chat/completions";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int port;
+    private final long latencyMedianMillis;
+    private final double latencySigma;
+    private final double errorRate;
+    private final double throttleRate;
+    private final long retryAfterSeconds;
+    private final int tokensPerSecond;
+    private final int streamChunkTokens;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    MockLlmServer(LoadGenerator.Arguments args) {
+        this.port = Integer.parseInt(args.get("port", "8089"));
+        this.latencyMedianMillis = args.duration("latency-median", "800ms").toMillis();
+        this.latencySigma = Double.parseDouble(args.get("latency-sigma", "0.5"));
+        this.errorRate = Double.parseDouble(args.get("error-rate", "0.01"));
+        this.throttleRate = Double.parseDouble(args.get("throttle-rate", "0.02"));
+        this.retryAfterSeconds = args.duration("retry-after", "1s").toSeconds();
+        this.tokensPerSecond = Integer.parseInt(args.get("tokens-per-second", "250"));
+        this.streamChunkTokens = Integer.parseInt(args.get("stream-chunk-tokens", "8"));
+    }
+
+    public static void main(String[] argv) throws IOException {
+        MockLlmServer server = new MockLlmServer(new LoadGenerator.Arguments(argv));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+
+    void start() throws IOException {
+        //задержки держат только виртуальные потоки, запросов одновременно может быть сколько угодно
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext(COMPLETIONS_PATH, this::handleCompletion);
+        server.createContext("/stats", this::handleStats);
+        server.start();
+        System.out.printf("Mock LLM server listening on http://localhost:%d%s (median latency %d ms, errors %.3f, 429 %.3f)%n",
+                port, COMPLETIONS_PATH, latencyMedianMillis, errorRate, throttleRate);
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            System.out.printf("Mock LLM server stopped: %d requests, %d errors, %d throttled, %d completion tokens%n",
+                    requests.get(), errors.get(), throttled.get(), completionTokens.get());
+        }
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", "{\"error\":{\"message\":\"Method not allowed\"}}");
+                return;
+            }
+            requests.incrementAndGet();
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double roll = random.nextDouble();
+            if (roll < throttleRate) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                send(exchange, 429, "application/json",
+                        "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"rate_limit_exceeded\"}}");
+                return;
+            }
+            if (roll < throttleRate + errorRate) {
+                errors.incrementAndGet();
+                Thread.sleep(sampleLatency(random));
+                send(exchange, 503, "application/json",
+                        "{\"error\":{\"message\":\"Service unavailable\",\"type\":\"server_error\"}}");
+                return;
+            }
+
+            String prompt = request.path("messages").path(request.path("messages").size() - 1).path("content").asText();
+            String content = respond(prompt);
+            int promptTokens = estimateTokens(prompt);
+            int tokens = estimateTokens(content);
+            completionTokens.addAndGet(tokens);
+
+            if (request.path("stream").asBoolean()) {
+                stream(exchange, request.path("model").asText(), content, promptTokens, tokens, random);
+            } else {
+                Thread.sleep(sampleLatency(random));
+                send(exchange, 200, "application/json",
+                        completion(request.path("model").asText(), content, promptTokens, tokens).toString());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Первый токен после случайной задержки, дальше фрагменты со скоростью tokens-per-second
+     */
+    private void stream(HttpExchange exchange, String model, String content, int promptTokens, int tokens,
+                        ThreadLocalRandom random) throws IOException, InterruptedException {
+        Thread.sleep(sampleLatency(random));
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+
+        String id = "chatcmpl-" + UUID.randomUUID();
+        int chunkChars = streamChunkTokens * 4;
+        long chunkDelayMillis = Math.max(1, streamChunkTokens * 1000L / tokensPerSecond);
+        for (int offset = 0; offset < content.length(); offset += chunkChars) {
+            ObjectNode chunk = chunkNode(id, model);
+            chunk.putArray("choices").addObject()
+                    .put("index", 0)
+                    .putObject("delta")
+                    .put("content", content.substring(offset, Math.min(content.length(), offset + chunkChars)));
+            writeEvent(body, chunk.toString());
+            Thread.sleep(chunkDelayMillis);
+        }
+
+        ObjectNode last = chunkNode(id, model);
+        last.putArray("choices").addObject()
+                .put("index", 0)
+                .put("finish_reason", "stop")
+                .putObject("delta");
+        ObjectNode usage = last.putObject("x_groq").putObject("usage");
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", tokens);
+        usage.put("total_tokens", promptTokens + tokens);
+        writeEvent(body, last.toString());
+        writeEvent(body, "[DONE]");
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ObjectNode stats = objectMapper.createObjectNode();
+            stats.put("requests", requests.get());
+            stats.put("errors", errors.get());
+            stats.put("throttled", throttled.get());
+            stats.put("completionTokens", completionTokens.get());
+            send(exchange, 200, "application/json", stats.toString());
+        }
+    }
+
+    /**
+     * Ответ в формате, который ожидает соответствующий этап конвейера
+     */
+    private String respond(String prompt) {
+        if (prompt.startsWith("Analyze requirement")) {
+            return "{\"entities\":[{\"name\":\"Order\",\"fields\":[\"id\",\"items\",\"total\"]}]," +
+                    "\"actions\":[\"create\",\"recalculate\"],\"parameters\":{\"currency\":\"EUR\"}}";
+        }
+        if (prompt.startsWith("Validate and optimize")) {
+            return "{\"hasErrors\":false,\"hasSyntaxErrors\":false,\"errors\":[]," +
+                    "\"suggestions\":[{\"type\":\"PERFORMANCE\",\"description\":\"Cache the computed total\"," +
+                    "\"currentCode\":\"total()\",\"suggestedCode\":\"cachedTotal()\",\"priority\":2}]," +
+                    "\"qualityScore\":85}";
+        }
+        if (prompt.startsWith("Generate code")) {
+            return """
+                    ```java
+                    package com.generated.java;
+
+                    public class OrderController {
+
+                        private final OrderService orderService;
+
+                        public OrderController(OrderService orderService) {
+                            this.orderService = orderService;
+                        }
+
+                        public OrderTotal recalculate(Long orderId) {
+                            Order order = orderService.find(orderId);
+                            return orderService.recalculate(order);
+                        }
+                    }
+                    ```""";
+        }
+        return "1. What are the expected inputs?\n2. Which errors should be reported to the user?";
+    }
+
+    private ObjectNode completion(String model, String content, int promptTokens, int tokens) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "chatcmpl-" + UUID.randomUUID());
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", model);
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message")
+                .put("role", "assistant")
+                .put("content", content);
+        choice.put("finish_reason", "stop");
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", tokens);
+        usage.put("total_tokens", promptTokens + tokens);
+        return response;
+    }
+
+    private ObjectNode chunkNode(String id, String model) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("id", id);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("model", model);
+        return chunk;
+    }
+
+    //логнормальное распределение: медиана latency-median, разброс latency-sigma
+    private long sampleLatency(ThreadLocalRandom random) {
+        return Math.round(latencyMedianMillis * Math.exp(latencySigma * random.nextGaussian()));
+    }
+
+    private int estimateTokens(String text) {
+        return Math.max(1, text.length() / 4);
+    }
+
+    private void writeEvent(OutputStream body, String data) throws IOException {
+        body.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
@@ -0,0 +1,84 @@
+package com.codegen.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * HTTP клиент для обращений к AI модели: пул соединений, таймауты, gzip
+ */
+@Configuration
+public class AIClientConfig {
+
+    @Value("${ai.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${ai.http.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${ai.http.connect-timeout:5s}")
+    private Duration connectTimeout;
+
+    @Value("${ai.http.read-timeout:120s}")
+    private Duration readTimeout;
+
+    @Value("${ai.http.lease-timeout:10s}")
+    private Duration leaseTimeout;
+
+    @Value("${ai.http.idle-timeout:30s}")
+    private Duration idleTimeout;
+
+    @Value("${ai.http.connection-ttl:5m}")
+    private Duration connectionTtl;
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager aiConnectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+
+        //размер пула, занятые соединения и ожидающие аренды запросы
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "groq").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient aiHttpClient(PoolingHttpClientConnectionManager aiConnectionManager) {
+        //сжатие ответов (gzip/deflate) включено в HttpClientBuilder по умолчанию
+        return HttpClients.custom()
+                .setConnectionManager(aiConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(leaseTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient aiHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(aiHttpClient));
+    }
+}
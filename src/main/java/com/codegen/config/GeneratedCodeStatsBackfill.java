@@ -0,0 +1,53 @@
+package com.codegen.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Заполнение line_count и size_bytes для кода, сгенерированного до появления этих колонок
+ * Обновление идет порциями, чтобы не держать долгую блокировку на всей таблице
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class GeneratedCodeStatsBackfill {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.default_schema:codegen}")
+    private String schema;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        //подсчет строк совпадает с GeneratedCode: завершающие переводы строк не считаются,
+        //код только из переводов строк дает 0 строк, как split в Java (пустая строка, как и там, дает 1)
+        String sql = "UPDATE " + schema + ".generated_codes SET " +
+                "line_count = CASE WHEN source_code <> '' AND rtrim(source_code, E'\\r\\n') = '' THEN 0 " +
+                "    ELSE COALESCE(array_length(regexp_split_to_array(" +
+                "        rtrim(source_code, E'\\r\\n'), E'\\r\\n|\\r|\\n'), 1), 0) END, " +
+                "size_bytes = octet_length(source_code) " +
+                "WHERE id IN (SELECT id FROM " + schema + ".generated_codes " +
+                "             WHERE line_count IS NULL OR size_bytes IS NULL LIMIT " + CHUNK_SIZE + ")";
+        try {
+            int total = 0;
+            int updated;
+            do {
+                updated = jdbcTemplate.update(sql);
+                total += updated;
+            } while (updated == CHUNK_SIZE);
+
+            if (total > 0) {
+                log.info("Backfilled line count and size for {} generated files", total);
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill generated code stats: ", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.codegen.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Задачи по расписанию: опрос очереди, пульс аренды, сброс счетчиков, кэшей и трассировки
+ * Отключаются через scheduling.enabled=false, когда обработчиками управляет сам тест
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
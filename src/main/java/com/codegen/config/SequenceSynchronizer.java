@@ -0,0 +1,57 @@
+package com.codegen.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Синхронизация последовательностей с уже существующими данными
+ * Таблицы generated_codes и validation_reports раньше заполнялись через IDENTITY,
+ * поэтому последовательность сдвигается за максимальный id до первых вставок
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SequenceSynchronizer {
+
+    //таблица -> последовательность, шаг равен allocationSize в сущности
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "generated_codes", "generated_codes_seq",
+            "validation_reports", "validation_reports_seq"
+    );
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    //схема создается Hibernate при инициализации EntityManagerFactory
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${spring.jpa.properties.hibernate.default_schema:codegen}")
+    private String schema;
+
+    @PostConstruct
+    public void synchronize() {
+        SEQUENCES.forEach((table, sequence) -> {
+            String qualifiedTable = schema + "." + table;
+            String qualifiedSequence = schema + "." + sequence;
+            try {
+                Long maxId = jdbcTemplate.queryForObject(
+                        "SELECT COALESCE(MAX(id), 0) FROM " + qualifiedTable, Long.class);
+                Long lastValue = jdbcTemplate.queryForObject(
+                        "SELECT last_value FROM " + qualifiedSequence, Long.class);
+                if (maxId != null && lastValue != null && lastValue < maxId + ALLOCATION_SIZE) {
+                    jdbcTemplate.queryForObject("SELECT setval(?, ?)", Long.class,
+                            qualifiedSequence, maxId + ALLOCATION_SIZE);
+                    log.info("Sequence {} moved past existing id {}", qualifiedSequence, maxId);
+                }
+            } catch (Exception e) {
+                log.error("Failed to synchronize sequence {}: ", qualifiedSequence, e);
+            }
+        });
+    }
+}
@@ -1,23 +1,31 @@
 package com.codegen.controller;
 
-import com.codegen.dto.GeneratedCodeDTO;
+import com.codegen.dto.BatchStatusDTO;
 import com.codegen.dto.RequirementCreateDTO;
 import com.codegen.dto.RequirementResponseDTO;
+import com.codegen.dto.RequirementStatusDTO;
 import com.codegen.mapper.GeneratedCodeMapper;
 import com.codegen.model.GeneratedCode;
 import com.codegen.model.Requirement;
 import com.codegen.model.RequirementStatus;
 import com.codegen.model.User;
+import com.codegen.repository.GeneratedCodeRepository;
 import com.codegen.repository.ProjectRepository;
 import com.codegen.repository.RequirementRepository;
 import com.codegen.repository.UserRepository;
-import com.codegen.service.CodeGenerationService;
-import com.codegen.service.CodeValidationService;
-import com.codegen.service.RequirementAnalysisService;
+import com.codegen.service.BatchGenerationService;
+import com.codegen.service.GenerationStreamService;
+import com.codegen.service.RequirementJobService;
+import com.codegen.service.RequirementPipelineService;
+import com.codegen.service.RequirementTraceService;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -25,10 +33,13 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -37,13 +48,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CodeGenerationController {
 
-    private final RequirementAnalysisService analysisService;
-    private final CodeGenerationService generationService;
-    private final CodeValidationService validationService;
+    private final RequirementPipelineService pipelineService;
     private final RequirementRepository requirementRepository;
+    private final GeneratedCodeRepository codeRepository;
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
     private final GeneratedCodeMapper generatedCodeMapper;
+    private final GenerationStreamService streamService;
+    private final BatchGenerationService batchGenerationService;
+    private final Validator validator;
+    private final RequirementTraceService traceService;
+
+    @Value("${pipeline.batch.max-size:100}")
+    private int maxBatchSize;
+
+    @Value("${trace.stats.max-window-minutes:10080}")
+    private int maxTraceWindowMinutes;
 
     @PostMapping("/generate")
     public ResponseEntity<?> generateCode(
@@ -53,6 +73,10 @@ public class CodeGenerationController {
         try {
             log.info("Received code generation request from user: {}", userId);
 
+            if (!pipelineService.hasCapacity()) {
+                return tooManyRequests();
+            }
+
             //валидация пользователя
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -60,8 +84,14 @@ public class CodeGenerationController {
             //создание требования
             Requirement requirement = createRequirement(dto, user);
 
-            //асинхронная обработка
-            processRequirementAsync(requirement);
+            //постановка в постоянную очередь задач
+            pipelineService.accept(requirement);
+
+            //AI недоступен - требование остается в PENDING и будет обработано после восстановления
+            if (!pipelineService.isAIAvailable()) {
+                log.warn("AI circuit is open, requirement {} deferred as PENDING", requirement.getId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(mapToDTO(requirement));
+            }
 
             return ResponseEntity.ok(mapToDTO(requirement));
 
@@ -74,13 +104,68 @@ public class CodeGenerationController {
         }
     }
 
+    @PostMapping("/generate/batch")
+    public ResponseEntity<?> generateBatch(
+            @RequestBody List<RequirementCreateDTO> dtos,
+            @RequestHeader("User-Id") Long userId,
+            @RequestParam(defaultValue = "" + RequirementJobService.BATCH_PRIORITY) int priority) {
+
+        try {
+            log.info("Received batch of {} requirements from user: {}", dtos.size(), userId);
+
+            if (dtos.isEmpty() || dtos.size() > maxBatchSize) {
+                return ResponseEntity.badRequest()
+                        .body("Batch must contain from 1 to " + maxBatchSize + " requirements");
+            }
+            for (int i = 0; i < dtos.size(); i++) {
+                Set<ConstraintViolation<RequirementCreateDTO>> violations = validator.validate(dtos.get(i));
+                if (!violations.isEmpty()) {
+                    return ResponseEntity.badRequest()
+                            .body("Requirement #" + i + ": " + violations.iterator().next().getMessage());
+                }
+            }
+            if (!pipelineService.hasCapacity(dtos.size())) {
+                return tooManyRequests();
+            }
+
+            BatchStatusDTO batch = batchGenerationService.createBatch(userId, dtos,
+                    Math.min(priority, RequirementJobService.INTERACTIVE_PRIORITY - 1));
+            pipelineService.wakeUp();
+
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(batch);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Error processing batch generation request: ", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Internal server error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<?> getBatchStatus(@PathVariable Long batchId,
+                                            @RequestHeader("User-Id") Long userId) {
+        try {
+            return ResponseEntity.ok(batchGenerationService.getBatchStatus(batchId, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/status/{requirementId}")
     public ResponseEntity<?> getStatus(@PathVariable Long requirementId) {
         try {
-            Requirement requirement = requirementRepository.findById(requirementId)
+            RequirementRepository.RequirementView requirement = requirementRepository.findViewById(requirementId)
                     .orElseThrow(() -> new IllegalArgumentException("Requirement not found"));
 
-            return ResponseEntity.ok(mapToDTO(requirement));
+            //код появляется только после генерации
+            List<GeneratedCode> codes = switch (requirement.getStatus()) {
+                case VALIDATING, COMPLETED, FAILED -> codeRepository.findWithReportsByRequirementId(requirementId);
+                default -> List.of();
+            };
+
+            return ResponseEntity.ok(mapToDTO(requirement, codes));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -88,20 +173,54 @@ public class CodeGenerationController {
 
     @GetMapping("/code/{requirementId}")
     public ResponseEntity<?> getGeneratedCode(@PathVariable Long requirementId) {
-        try {
-            Requirement requirement = requirementRepository.findById(requirementId)
-                    .orElseThrow(() -> new IllegalArgumentException("Requirement not found"));
+        List<GeneratedCode> codes = codeRepository.findWithReportsByRequirementId(requirementId);
+        if (codes.isEmpty() && !requirementRepository.existsById(requirementId)) {
+            return ResponseEntity.badRequest().body("Requirement not found");
+        }
 
-            List<GeneratedCodeDTO> codes = requirement.getGeneratedCodes().stream()
-                    .map(generatedCodeMapper::toDTO)
-                    .collect(Collectors.toList());
+        return ResponseEntity.ok(codes.stream()
+                .map(generatedCodeMapper::toDTO)
+                .collect(Collectors.toList()));
+    }
+
+    //облегченный статус без загрузки кода и отчетов
+    @GetMapping("/status/{requirementId}/summary")
+    public ResponseEntity<?> getStatusSummary(@PathVariable Long requirementId) {
+        return requirementRepository.findStatusById(requirementId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.badRequest().body("Requirement not found"));
+    }
 
-            return ResponseEntity.ok(codes);
+    //поток статусов и фрагментов кода
+    @GetMapping(value = "/stream/{requirementId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamCode(@PathVariable Long requirementId) {
+        Optional<RequirementStatusDTO> current = requirementRepository.findStatusById(requirementId);
+        if (current.isEmpty()) {
+            return ResponseEntity.badRequest().body("Requirement not found");
+        }
+        SseEmitter emitter = streamService.subscribe(requirementId, current.get());
+        return ResponseEntity.ok(emitter);
+    }
+
+    //где ушло время: очередь, этапы, вызовы LLM и повторы, токены, кэш
+    @GetMapping("/trace/{requirementId}")
+    public ResponseEntity<?> getTrace(@PathVariable Long requirementId) {
+        try {
+            return ResponseEntity.ok(traceService.getTrace(requirementId));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    //перцентили задержек этапов за последние windowMinutes минут
+    @GetMapping("/trace/stats")
+    public ResponseEntity<?> getTraceStats(@RequestParam(defaultValue = "60") int windowMinutes) {
+        if (windowMinutes <= 0 || windowMinutes > maxTraceWindowMinutes) {
+            return ResponseEntity.badRequest().body("windowMinutes must be between 1 and " + maxTraceWindowMinutes);
+        }
+        return ResponseEntity.ok(traceService.getLatencyStats(Duration.ofMinutes(windowMinutes)));
+    }
+
     @GetMapping("/health")
     public ResponseEntity<String> healthCheck() {
         return ResponseEntity.ok("Code Generation API is running");
@@ -123,37 +242,28 @@ public class CodeGenerationController {
         return requirementRepository.save(requirement);
     }
 
-    private void processRequirementAsync(Requirement requirement) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                log.info("Starting async processing for requirement: {}", requirement.getId());
-
-                //анализ требований
-                log.info("Step 1: Analyzing requirement {}", requirement.getId());
-                Requirement analyzed = analysisService.analyzeRequirement(requirement);
-                log.info("Analysis completed for requirement {}", requirement.getId());
-
-                //генерация кода
-                log.info("Step 2: Generating code for requirement {}", requirement.getId());
-                List<GeneratedCode> codes = generationService.generateCode(analyzed);
-                log.info("Generated {} code files for requirement {}",
-                        codes.size(), requirement.getId());
-
-                //валидация
-                log.info("Step 3: Validating code for requirement {}", requirement.getId());
-                validationService.validateRequirementCodes(analyzed);
-                log.info("Validation completed for requirement {}", requirement.getId());
+    private ResponseEntity<String> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body("Code generation pipeline is busy, please retry later");
+    }
 
-                log.info("Successfully processed requirement: {}", requirement.getId());
+    private RequirementResponseDTO mapToDTO(RequirementRepository.RequirementView req, List<GeneratedCode> codes) {
+        RequirementResponseDTO dto = new RequirementResponseDTO();
+        dto.setId(req.getId());
+        dto.setDescription(req.getDescription());
+        dto.setLanguage(req.getLanguage());
+        dto.setFramework(req.getFramework());
+        dto.setStatus(req.getStatus().name());
+        dto.setStructuredModel(req.getStructuredModel());
+        dto.setCreatedAt(req.getCreatedAt());
 
-            } catch (Exception e) {
-                log.error("Error in code generation pipeline for requirement {}: ",
-                        requirement.getId(), e);
+        if (!codes.isEmpty()) {
+            dto.setGeneratedCodes(codes.stream()
+                    .map(generatedCodeMapper::toDTO)
+                    .collect(Collectors.toList()));
+        }
 
-                requirement.setStatus(RequirementStatus.FAILED);
-                requirementRepository.save(requirement);
-            }
-        });
+        return dto;
     }
 
     private RequirementResponseDTO mapToDTO(Requirement req) {
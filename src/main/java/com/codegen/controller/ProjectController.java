@@ -1,15 +1,13 @@
 package com.codegen.controller;
 
+import com.codegen.dto.CursorPageDTO;
 import com.codegen.dto.ProjectDTO;
-import com.codegen.model.GeneratedCode;
 import com.codegen.model.Project;
-import com.codegen.model.Requirement;
 import com.codegen.model.User;
 import com.codegen.repository.ProjectRepository;
 import com.codegen.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -17,9 +15,15 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -27,18 +31,59 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProjectController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProjectRepository projectRepository;
     private final UserRepository userRepository;
 
-    //получить все проекты пользователя
+    //получить проекты пользователя постранично, от недавно обновленных
     @GetMapping
-    @Transactional(readOnly = true)
-    public ResponseEntity<List<ProjectDTO>> getUserProjects(@RequestHeader("User-Id") Long userId) {
-        List<ProjectDTO> projects = projectRepository.findByUserIdOrderByUpdatedAtDesc(userId)
-                .stream()
-                .map(this::mapToDTO)
+    public ResponseEntity<?> getUserProjects(
+            @RequestHeader("User-Id") Long userId,
+            @RequestParam(required = false) String language,
+            @RequestParam(required = false) String framework,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        LocalDateTime afterUpdatedAt = null;
+        Long afterId = null;
+        if (cursor != null) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                afterUpdatedAt = LocalDateTime.parse(parts[0]);
+                afterId = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor");
+            }
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        //на одну запись больше, чтобы узнать есть ли следующая страница
+        List<ProjectRepository.ProjectSummary> rows = projectRepository.findSummaries(
+                userId, afterUpdatedAt, afterId, language, framework, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<ProjectRepository.ProjectSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        //статистика кода по всем проектам страницы одним запросом
+        Map<Long, ProjectRepository.ProjectCodeStats> stats = page.isEmpty()
+                ? Map.of()
+                : projectRepository.findCodeStats(page.stream().map(ProjectRepository.ProjectSummary::getId).toList())
+                        .stream()
+                        .collect(Collectors.toMap(ProjectRepository.ProjectCodeStats::getProjectId, Function.identity()));
+
+        List<ProjectDTO> projects = page.stream()
+                .map(project -> mapToDTO(project, stats.get(project.getId())))
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(projects);
+
+        String nextCursor = null;
+        if (hasMore) {
+            ProjectRepository.ProjectSummary last = page.get(page.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getUpdatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return ResponseEntity.ok(new CursorPageDTO<>(projects, nextCursor, hasMore));
     }
 
     //создать проект
@@ -69,7 +114,7 @@ public class ProjectController {
         return ResponseEntity.ok().build();
     }
 
-    private ProjectDTO mapToDTO(Project project) {
+    private ProjectDTO mapToDTO(ProjectRepository.ProjectSummary project, ProjectRepository.ProjectCodeStats stats) {
         ProjectDTO dto = new ProjectDTO();
         dto.setId(project.getId());
         dto.setName(project.getName());
@@ -78,24 +123,21 @@ public class ProjectController {
         dto.setLanguage(project.getLanguage());
         dto.setFramework(project.getFramework());
         dto.setUpdatedAt(project.getUpdatedAt());
+        dto.setFilesCount(stats != null ? (int) stats.getFilesCount() : 0);
+        dto.setLinesOfCode(stats != null ? (int) stats.getLinesOfCode() : 0);
+        return dto;
+    }
 
-        int files = 0;
-        int lines = 0;
-        if (project.getRequirements() != null) {
-            for (Requirement req : project.getRequirements()) {
-                if (req.getGeneratedCodes() != null) {
-                    files += req.getGeneratedCodes().size();
-                    for (GeneratedCode code : req.getGeneratedCodes()) {
-                        if (code.getSourceCode() != null) {
-                            lines += code.getSourceCode().split("\r\n|\r|\n").length;
-                        }
-                    }
-                }
-            }
-        }
-        dto.setFilesCount(files);
-        dto.setLinesOfCode(lines);
-
+    //новый проект, кода в нем еще нет
+    private ProjectDTO mapToDTO(Project project) {
+        ProjectDTO dto = new ProjectDTO();
+        dto.setId(project.getId());
+        dto.setName(project.getName());
+        dto.setDescription(project.getDescription());
+        dto.setStatus(project.getStatus());
+        dto.setLanguage(project.getLanguage());
+        dto.setFramework(project.getFramework());
+        dto.setUpdatedAt(project.getUpdatedAt());
         return dto;
     }
 }
@@ -1,8 +1,11 @@
 package com.codegen.controller;
 
 import com.codegen.dto.CodeTemplateDTO;
+import com.codegen.dto.CursorPageDTO;
 import com.codegen.model.CodeTemplate;
+import com.codegen.model.TemplateType;
 import com.codegen.repository.CodeTemplateRepository;
+import com.codegen.service.TemplateUsageCounter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
@@ -12,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.nio.charset.StandardCharsets;
@@ -23,15 +27,42 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TemplateController {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final CodeTemplateRepository templateRepository;
+    private final TemplateUsageCounter usageCounter;
 
-    //получить все шаблоны
+    //получить шаблоны постранично, курсор - id последнего шаблона предыдущей страницы
     @GetMapping
-    public ResponseEntity<List<CodeTemplateDTO>> getAllTemplates() {
-        List<CodeTemplateDTO> dtos = templateRepository.findAll().stream()
+    public ResponseEntity<?> getAllTemplates(
+            @RequestParam(required = false) String language,
+            @RequestParam(required = false) String framework,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+
+        TemplateType templateType;
+        long afterId;
+        try {
+            templateType = type != null ? TemplateType.valueOf(type.toUpperCase()) : null;
+            afterId = cursor != null ? Long.parseLong(cursor) : 0L;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid type or cursor");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        //на одну запись больше, чтобы узнать есть ли следующая страница
+        List<CodeTemplateRepository.TemplateSummary> rows = templateRepository.findSummaries(
+                afterId, language, framework, templateType, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<CodeTemplateDTO> dtos = rows.stream()
+                .limit(pageSize)
                 .map(this::mapToDTO)
                 .collect(Collectors.toList());
-        return ResponseEntity.ok(dtos);
+        String nextCursor = hasMore ? String.valueOf(dtos.get(dtos.size() - 1).getId()) : null;
+
+        return ResponseEntity.ok(new CursorPageDTO<>(dtos, nextCursor, hasMore));
     }
 
     //скачать шаблон как файл
@@ -41,8 +72,7 @@ public class TemplateController {
                 .orElseThrow(() -> new RuntimeException("Template not found"));
 
         //увеличиваем счетчик
-        template.setUsageCount(template.getUsageCount() + 1);
-        templateRepository.save(template);
+        usageCounter.increment(template.getId());
 
         //создаем файл
         byte[] content = template.getTemplateContent().getBytes(StandardCharsets.UTF_8);
@@ -59,7 +89,7 @@ public class TemplateController {
                 .body(resource);
     }
 
-    private CodeTemplateDTO mapToDTO(CodeTemplate template) {
+    private CodeTemplateDTO mapToDTO(CodeTemplateRepository.TemplateSummary template) {
         CodeTemplateDTO dto = new CodeTemplateDTO();
         dto.setId(template.getId());
         dto.setName(template.getName());
@@ -67,7 +97,8 @@ public class TemplateController {
         dto.setLanguage(template.getLanguage());
         dto.setFramework(template.getFramework());
         dto.setType(template.getType() != null ? template.getType().name() : "OTHER");
-        dto.setUsageCount(template.getUsageCount());
+        long stored = template.getUsageCount() != null ? template.getUsageCount() : 0;
+        dto.setUsageCount((int) (stored + usageCounter.pendingDelta(template.getId())));
         dto.setUpdatedAt(template.getUpdatedAt());
         return dto;
     }
@@ -0,0 +1,21 @@
+package com.codegen.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class BatchStatusDTO {
+    private Long batchId;
+    private Integer total;
+    private Long completed;
+    private Long failed;
+    private Long inProgress;
+    private Integer progressPercent; //доля завершенных (успешно или с ошибкой)
+    private Boolean finished;
+    private Map<String, Long> statusCounts;
+    private List<Long> requirementIds;
+    private LocalDateTime createdAt;
+}
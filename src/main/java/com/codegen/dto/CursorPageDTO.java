@@ -0,0 +1,19 @@
+package com.codegen.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница списка с курсором на следующую страницу (keyset пагинация)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> items;
+    private String nextCursor; //null если страниц больше нет
+    private boolean hasMore;
+}
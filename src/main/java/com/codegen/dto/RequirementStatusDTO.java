@@ -0,0 +1,21 @@
+package com.codegen.dto;
+
+import com.codegen.model.RequirementStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class RequirementStatusDTO {
+    private Long id;
+    private String status;
+    private LocalDateTime updatedAt;
+
+    public RequirementStatusDTO(Long id, RequirementStatus status, LocalDateTime updatedAt) {
+        this.id = id;
+        this.status = status.name();
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,25 @@
+package com.codegen.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class RequirementTraceDTO {
+    private Long requirementId;
+    private String status;
+    private LocalDateTime createdAt;
+    private Long totalMs; //от создания требования до конца последнего события
+    private Long queueMs; //ожидание этапов в очереди задач
+    private Map<String, Long> stageMs; //время выполнения по этапам, с учетом повторов
+    private Map<String, Long> aiAttempts; //вызовы LLM по операциям, без попаданий в кэш
+    private Long aiFailures;
+    private Long cacheHits;
+    private Long promptTokens;
+    private Long completionTokens;
+    private Long bytesOut;
+    private Long bytesIn;
+    private List<TraceEventDTO> events;
+}
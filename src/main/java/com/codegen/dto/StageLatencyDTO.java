@@ -0,0 +1,14 @@
+package com.codegen.dto;
+
+import lombok.Data;
+
+@Data
+public class StageLatencyDTO {
+    private String kind;
+    private String name;
+    private Long count;
+    private Long p50Ms;
+    private Long p95Ms;
+    private Long p99Ms;
+    private Long maxMs;
+}
@@ -0,0 +1,20 @@
+package com.codegen.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class TraceEventDTO {
+    private String kind;
+    private String name;
+    private LocalDateTime startedAt;
+    private Long durationMs;
+    private String outcome;
+    private Integer attempt;
+    private Integer bytesOut;
+    private Integer bytesIn;
+    private Integer promptTokens;
+    private Integer completionTokens;
+    private Boolean cacheHit;
+}
@@ -6,27 +6,67 @@ import com.codegen.dto.ValidationReportDTO;
 import com.codegen.model.ErrorDetail;
 import com.codegen.model.OptimizationSuggestion;
 import com.codegen.model.ValidationReport;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
+/**
+ * Маппинг отчета валидации
+ * JSON ошибок и предложений разбирается один раз, результат кэшируется по id отчета и времени валидации
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ValidationReportMapper {
 
-    private final ObjectMapper objectMapper;
+    private final ObjectReader errorsReader;
+    private final ObjectReader suggestionsReader;
+    private final Cache<Long, CachedReport> decodedReports;
+
+    public ValidationReportMapper(ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${validation.report-cache.max-size:5000}") long maxSize) {
+        this.errorsReader = objectMapper.readerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, ErrorDetail.class));
+        this.suggestionsReader = objectMapper.readerFor(
+                objectMapper.getTypeFactory().constructCollectionType(List.class, OptimizationSuggestion.class));
+        this.decodedReports = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, decodedReports, "validation.reports");
+    }
 
     public ValidationReportDTO toDTO(ValidationReport report) {
         if (report == null) {
             return null;
         }
+        if (report.getId() == null) {
+            return decode(report);
+        }
+
+        CachedReport cached = decodedReports.getIfPresent(report.getId());
+        if (cached != null && Objects.equals(cached.validatedAt(), report.getValidatedAt())) {
+            return cached.dto();
+        }
 
+        ValidationReportDTO dto = decode(report);
+        decodedReports.put(report.getId(), new CachedReport(report.getValidatedAt(), dto));
+        return dto;
+    }
+
+    private ValidationReportDTO decode(ValidationReport report) {
         ValidationReportDTO dto = new ValidationReportDTO();
         dto.setHasErrors(report.getHasErrors());
         dto.setHasSyntaxErrors(report.getHasSyntaxErrors());
@@ -35,22 +75,16 @@ public class ValidationReportMapper {
         try {
             //парсинг ошибок из JSON
             if (report.getErrorDetails() != null) {
-                List<ErrorDetail> errors = objectMapper.readValue(
-                        report.getErrorDetails(),
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, ErrorDetail.class)
-                );
+                List<ErrorDetail> errors = errorsReader.readValue(report.getErrorDetails());
                 dto.setErrors(mapErrorDetailsToDTO(errors));
             }
 
             // парсинг предложений из JSON
             if (report.getOptimizationSuggestions() != null) {
-                List<OptimizationSuggestion> suggestions = objectMapper.readValue(
-                        report.getOptimizationSuggestions(),
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, OptimizationSuggestion.class)
-                );
+                List<OptimizationSuggestion> suggestions = suggestionsReader.readValue(report.getOptimizationSuggestions());
                 dto.setSuggestions(mapSuggestionsToDTO(suggestions));
             }
-        } catch (JsonProcessingException e) {
+        } catch (IOException e) {
             log.error("Error parsing validation report JSON: {}", e.getMessage());
         }
 
@@ -95,4 +129,8 @@ public class ValidationReportMapper {
         dto.setPriority(suggestion.getPriority());
         return dto;
     }
-}
\ No newline at end of file
+
+    //отчет не меняется после сохранения, время валидации служит версией
+    private record CachedReport(LocalDateTime validatedAt, ValidationReportDTO dto) {
+    }
+}
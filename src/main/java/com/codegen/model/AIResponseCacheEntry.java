@@ -0,0 +1,36 @@
+package com.codegen.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ai_response_cache")
+@Data
+public class AIResponseCacheEntry {
+    @Id
+    @Column(length = 64)
+    private String cacheKey; //SHA-256 от модели и промптов
+
+    @Column(nullable = false)
+    private String model; //модель, которая дала ответ
+
+    @Column(nullable = false)
+    private String operation; //тип запроса
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String response; //ответ модели
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
@@ -15,7 +16,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "code_templates")
+@Table(name = "code_templates", indexes = {
+        @Index(name = "idx_code_templates_language_framework", columnList = "language, framework, id"),
+        @Index(name = "idx_code_templates_type", columnList = "type, id")
+})
 @Data
 public class CodeTemplate {
     @Id
@@ -42,8 +46,8 @@ public class CodeTemplate {
     @Column(columnDefinition = "TEXT")
     private String variables; // JSON переменных для подстановки
 
-    @Column(nullable = false)
-    private Integer usageCount = 0; //счетчик использований
+    @Column(nullable = false, updatable = false)
+    private Integer usageCount = 0; //счетчик использований, обновляется только через TemplateUsageCounter
 
     @Column(nullable = false)
     private LocalDateTime createdAt;
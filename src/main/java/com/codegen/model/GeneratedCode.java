@@ -7,22 +7,27 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Data;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "generated_codes")
+@Table(name = "generated_codes", indexes = @Index(name = "idx_generated_codes_requirement", columnList = "requirement_id"))
 @Data
 public class GeneratedCode {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "generated_codes_seq")
+    @SequenceGenerator(name = "generated_codes_seq", sequenceName = "generated_codes_seq", allocationSize = 50)
+    private Long id; //пул идентификаторов из последовательности, чтобы вставки шли пакетом
 
     @Column(nullable = false, columnDefinition = "TEXT")
     private String sourceCode; //исходный код
@@ -32,6 +37,12 @@ public class GeneratedCode {
 
     private String packagePath; //путь
 
+    @Column(name = "line_count")
+    private Integer lineCount; //количество строк, считается при сохранении
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes; //размер в UTF-8
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "requirement_id")
     private Requirement requirement;
@@ -49,5 +60,21 @@ public class GeneratedCode {
     @PrePersist
     protected void onCreate() {
         generatedAt = LocalDateTime.now();
+        updateSourceStats();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updateSourceStats();
+    }
+
+    private void updateSourceStats() {
+        if (sourceCode == null) {
+            lineCount = 0;
+            sizeBytes = 0L;
+            return;
+        }
+        lineCount = sourceCode.split("\r\n|\r|\n").length;
+        sizeBytes = (long) sourceCode.getBytes(StandardCharsets.UTF_8).length;
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.codegen.model;
+
+public enum JobStage {
+    ANALYZE,   //анализ требований
+    GENERATE,  //генерация кода
+    VALIDATE   //валидация
+}
@@ -0,0 +1,8 @@
+package com.codegen.model;
+
+public enum JobStatus {
+    QUEUED,    //ожидает обработчика
+    RUNNING,   //арендована обработчиком
+    COMPLETED, //выполнена
+    FAILED     //ошибка
+}
@@ -7,6 +7,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -20,7 +21,9 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "projects", schema = "codegen")
+@Table(name = "projects", schema = "codegen", indexes = {
+        @Index(name = "idx_projects_user_updated", columnList = "user_id, updated_at DESC, id DESC")
+})
 public class Project {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
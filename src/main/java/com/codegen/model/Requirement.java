@@ -9,6 +9,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -22,7 +23,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "requirements")
+@Table(name = "requirements", indexes = {
+        @Index(name = "idx_requirements_batch", columnList = "batch_id"),
+        @Index(name = "idx_requirements_project", columnList = "project_id")
+})
 @Data
 public class Requirement {
     @Id
@@ -51,6 +55,9 @@ public class Requirement {
     @JoinColumn(name = "project_id")
     private Project project;
 
+    @Column(name = "batch_id")
+    private Long batchId; //пакет, в составе которого создано требование
+
     @OneToMany(mappedBy = "requirement", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<GeneratedCode> generatedCodes = new ArrayList<>();
 
@@ -0,0 +1,85 @@
+package com.codegen.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Задача обработки требования в постоянной очереди
+ */
+@Entity
+@Table(name = "requirement_jobs", indexes = {
+        @Index(name = "idx_requirement_jobs_claim", columnList = "stage, status, available_at, id"),
+        @Index(name = "idx_requirement_jobs_requirement", columnList = "requirement_id", unique = true)
+})
+@Data
+public class RequirementJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "requirement_id", nullable = false)
+    private Long requirementId;
+
+    @Column(name = "user_id")
+    private Long userId; //владелец, для равномерного распределения между пользователями
+
+    @Column(nullable = false)
+    private Integer priority = 0; //больше - раньше
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStage stage; //этап конвейера, который предстоит выполнить (контрольная точка)
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobStatus status;
+
+    @Column(name = "lease_owner")
+    private String leaseOwner; //идентификатор обработчика
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt; //после истечения задачу может забрать другой обработчик
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt; //не раньше этого времени
+
+    @Column(name = "last_error", length = 2000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (availableAt == null) {
+            availableAt = createdAt;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,66 @@
+package com.codegen.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие трассировки обработки требования
+ * Таблица только дополняется (пакетной вставкой из RequirementTracer) и чистится по сроку хранения
+ */
+@Entity
+@Table(name = "requirement_trace_events", indexes = {
+        @Index(name = "idx_trace_events_requirement", columnList = "requirement_id, started_at"),
+        @Index(name = "idx_trace_events_started", columnList = "started_at")
+})
+@Data
+public class RequirementTraceEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "requirement_id", nullable = false)
+    private Long requirementId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private TraceEventKind kind;
+
+    @Column(nullable = false, length = 64)
+    private String name; //этап, шаг или операция AI
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "duration_ms", nullable = false)
+    private Long durationMs;
+
+    @Column(length = 16)
+    private String outcome;
+
+    private Integer attempt; //попытка задачи этапа
+
+    @Column(name = "bytes_out")
+    private Integer bytesOut; //тело запроса к LLM
+
+    @Column(name = "bytes_in")
+    private Integer bytesIn; //тело ответа LLM
+
+    @Column(name = "prompt_tokens")
+    private Integer promptTokens;
+
+    @Column(name = "completion_tokens")
+    private Integer completionTokens;
+
+    @Column(name = "cache_hit")
+    private Boolean cacheHit;
+}
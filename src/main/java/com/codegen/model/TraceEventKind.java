@@ -0,0 +1,11 @@
+package com.codegen.model;
+
+/**
+ * Тип события трассировки требования
+ */
+public enum TraceEventKind {
+    QUEUE,   //ожидание этапа в очереди задач
+    STAGE,   //выполнение этапа конвейера
+    STEP,    //шаг внутри этапа: генерация по шаблону, валидация файла, сохранение
+    AI_CALL  //попытка вызова LLM или попадание в кэш ответов
+}
@@ -9,6 +9,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import lombok.Data;
@@ -19,8 +20,9 @@ import java.time.LocalDateTime;
 @Data
 public class ValidationReport {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Long id;
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "validation_reports_seq")
+    @SequenceGenerator(name = "validation_reports_seq", sequenceName = "validation_reports_seq", allocationSize = 50)
+    private Long id; //пул идентификаторов из последовательности, чтобы вставки шли пакетом
 
     @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "generated_code_id")
@@ -0,0 +1,19 @@
+package com.codegen.repository;
+
+import com.codegen.model.AIResponseCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface AIResponseCacheRepository extends JpaRepository<AIResponseCacheEntry, String> {
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AIResponseCacheEntry e WHERE e.model <> :model OR e.createdAt < :expiredBefore")
+    int deleteStale(String model, LocalDateTime expiredBefore);
+}
@@ -0,0 +1,93 @@
+package com.codegen.repository;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.JobStatus;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Пакетная вставка через JDBC batch
+ * Идентификаторы резервируются одним запросом к последовательности identity-колонки
+ */
+@Repository
+@RequiredArgsConstructor
+public class BulkInsertRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.default_schema:codegen}")
+    private String schema;
+
+    /**
+     * Вставка требований, id проставляется в переданные объекты
+     */
+    public void insertRequirements(List<Requirement> requirements) {
+        if (requirements.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT nextval(pg_get_serial_sequence(?, 'id')) FROM generate_series(1, ?)",
+                Long.class, schema + ".requirements", requirements.size());
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < requirements.size(); i++) {
+            Requirement requirement = requirements.get(i);
+            requirement.setId(ids.get(i));
+            requirement.setStatus(RequirementStatus.PENDING);
+            requirement.setCreatedAt(now);
+        }
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO " + schema + ".requirements " +
+                        "(id, description, language, framework, status, user_id, project_id, batch_id, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                requirements,
+                requirements.size(),
+                (ps, requirement) -> {
+                    ps.setLong(1, requirement.getId());
+                    ps.setString(2, requirement.getDescription());
+                    ps.setString(3, requirement.getLanguage());
+                    ps.setString(4, requirement.getFramework());
+                    ps.setString(5, requirement.getStatus().name());
+                    ps.setLong(6, requirement.getUser().getId());
+                    if (requirement.getProject() != null) {
+                        ps.setLong(7, requirement.getProject().getId());
+                    } else {
+                        ps.setNull(7, Types.BIGINT);
+                    }
+                    ps.setObject(8, requirement.getBatchId(), Types.BIGINT);
+                    ps.setTimestamp(9, Timestamp.valueOf(requirement.getCreatedAt()));
+                });
+    }
+
+    /**
+     * Постановка задач в очередь для требований одного пользователя
+     */
+    public void insertJobs(List<Long> requirementIds, Long userId, int priority) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO " + schema + ".requirement_jobs " +
+                        "(requirement_id, user_id, priority, stage, status, attempts, available_at, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, 0, ?, ?)",
+                requirementIds,
+                requirementIds.size(),
+                (ps, requirementId) -> {
+                    ps.setLong(1, requirementId);
+                    ps.setObject(2, userId, Types.BIGINT);
+                    ps.setInt(3, priority);
+                    ps.setString(4, JobStage.ANALYZE.name());
+                    ps.setString(5, JobStatus.QUEUED.name());
+                    ps.setTimestamp(6, now);
+                    ps.setTimestamp(7, now);
+                });
+    }
+}
@@ -6,14 +6,35 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface CodeTemplateRepository extends JpaRepository<CodeTemplate, Long> {
+public interface CodeTemplateRepository extends JpaRepository<CodeTemplate, Long>, CodeTemplateSummaryRepository {
     List<CodeTemplate> findByLanguageAndFramework(String language, String framework);
     List<CodeTemplate> findByLanguage(String language);
     List<CodeTemplate> findByType(TemplateType type);
 
     @Query("SELECT t FROM CodeTemplate t WHERE t.language = :language AND t.type = :type ORDER BY t.usageCount DESC")
     List<CodeTemplate> findMostUsedTemplates(String language, TemplateType type);
+
+    interface TemplateSummary {
+        Long getId();
+        String getName();
+        String getDescription();
+        String getLanguage();
+        String getFramework();
+        TemplateType getType();
+        Integer getUsageCount();
+        LocalDateTime getUpdatedAt();
+    }
+
+    //версия каталога для сброса кэша шаблонов на всех узлах
+    @Query("SELECT COUNT(t) AS count, MAX(COALESCE(t.updatedAt, t.createdAt)) AS lastModified FROM CodeTemplate t")
+    CatalogVersion findCatalogVersion();
+
+    interface CatalogVersion {
+        long getCount();
+        LocalDateTime getLastModified();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.codegen.repository;
+
+import com.codegen.model.TemplateType;
+
+import java.util.List;
+
+/**
+ * Постраничный каталог шаблонов с необязательными фильтрами
+ */
+public interface CodeTemplateSummaryRepository {
+
+    /**
+     * Страница списка шаблонов после afterId, без содержимого и переменных
+     */
+    List<CodeTemplateRepository.TemplateSummary> findSummaries(long afterId, String language, String framework,
+                                                               TemplateType type, int limit);
+}
@@ -0,0 +1,29 @@
+package com.codegen.repository;
+
+import com.codegen.model.TemplateType;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class CodeTemplateSummaryRepositoryImpl implements CodeTemplateSummaryRepository {
+
+    private static final String SELECT =
+            "SELECT t.id AS id, t.name AS name, t.description AS description, t.language AS language, " +
+            "t.framework AS framework, t.type AS type, t.usageCount AS usageCount, t.updatedAt AS updatedAt " +
+            "FROM CodeTemplate t";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<CodeTemplateRepository.TemplateSummary> findSummaries(long afterId, String language, String framework,
+                                                                      TemplateType type, int limit) {
+        return new FilteredQuery(SELECT)
+                .and("t.id > :afterId").param("afterId", afterId)
+                .andIfPresent("t.language = :language", "language", language)
+                .andIfPresent("t.framework = :framework", "framework", framework)
+                .andIfPresent("t.type = :type", "type", type)
+                .fetch(entityManager, "t.id", limit, CodeTemplateRepository.TemplateSummary.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.codegen.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TupleElement;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL-запрос, в который попадают только заданные условия
+ * Без ":param IS NULL OR ..." не бывает нетипизированных null-параметров,
+ * а планировщик видит конкретный предикат и выбирает индекс по нему
+ */
+class FilteredQuery {
+
+    private static final ProjectionFactory PROJECTIONS = new SpelAwareProxyProjectionFactory();
+
+    private final String select;
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    FilteredQuery(String select) {
+        this.select = select;
+    }
+
+    FilteredQuery and(String condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    FilteredQuery param(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    //условие добавляется, только если значение задано
+    FilteredQuery andIfPresent(String condition, String name, Object value) {
+        return value == null ? this : and(condition).param(name, value);
+    }
+
+    /**
+     * Первые limit строк в виде интерфейсной проекции, поля берутся по алиасам select
+     */
+    <T> List<T> fetch(EntityManager entityManager, String orderBy, int limit, Class<T> projection) {
+        String jpql = select
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY " + orderBy;
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class).setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+
+        return query.getResultList().stream()
+                .map(tuple -> {
+                    Map<String, Object> values = new HashMap<>();
+                    for (TupleElement<?> element : tuple.getElements()) {
+                        values.put(element.getAlias(), tuple.get(element));
+                    }
+                    return PROJECTIONS.createProjection(projection, values);
+                })
+                .toList();
+    }
+}
@@ -2,6 +2,7 @@ package com.codegen.repository;
 
 import com.codegen.model.GeneratedCode;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +10,11 @@ import java.util.List;
 @Repository
 public interface GeneratedCodeRepository extends JpaRepository<GeneratedCode, Long> {
     List<GeneratedCode> findByRequirementId(Long requirementId);
+
+    boolean existsByRequirementId(Long requirementId);
+
+    //код требования вместе с отчетами валидации одним запросом
+    @Query("SELECT c FROM GeneratedCode c LEFT JOIN FETCH c.validationReport " +
+            "WHERE c.requirement.id = :requirementId ORDER BY c.id")
+    List<GeneratedCode> findWithReportsByRequirementId(Long requirementId);
 }
@@ -0,0 +1,12 @@
+package com.codegen.repository;
+
+import com.codegen.model.GenerationBatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface GenerationBatchRepository extends JpaRepository<GenerationBatch, Long> {
+    Optional<GenerationBatch> findByIdAndUserId(Long id, Long userId);
+}
@@ -2,14 +2,41 @@ package com.codegen.repository;
 
 import com.codegen.model.Project;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProjectRepository extends JpaRepository<Project, Long> {
+public interface ProjectRepository extends JpaRepository<Project, Long>, ProjectSummaryRepository {
     List<Project> findByUserId(Long userId);
     Optional<Project> findByIdAndUserId(Long id, Long userId);
     List<Project> findByUserIdOrderByUpdatedAtDesc(Long userId);
+
+    //количество файлов и строк по проектам страницы одним запросом
+    @Query("SELECT r.project.id AS projectId, COUNT(c) AS filesCount, " +
+            "COALESCE(SUM(c.lineCount), 0) AS linesOfCode " +
+            "FROM GeneratedCode c JOIN c.requirement r " +
+            "WHERE r.project.id IN :projectIds " +
+            "GROUP BY r.project.id")
+    List<ProjectCodeStats> findCodeStats(Collection<Long> projectIds);
+
+    interface ProjectSummary {
+        Long getId();
+        String getName();
+        String getDescription();
+        String getStatus();
+        String getLanguage();
+        String getFramework();
+        LocalDateTime getUpdatedAt();
+    }
+
+    interface ProjectCodeStats {
+        Long getProjectId();
+        long getFilesCount();
+        long getLinesOfCode();
+    }
 }
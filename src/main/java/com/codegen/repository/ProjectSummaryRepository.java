@@ -0,0 +1,17 @@
+package com.codegen.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Постраничный список проектов с необязательными фильтрами
+ */
+public interface ProjectSummaryRepository {
+
+    /**
+     * Страница проектов пользователя после курсора (updatedAt, id), от новых к старым
+     * Без курсора - первая страница
+     */
+    List<ProjectRepository.ProjectSummary> findSummaries(Long userId, LocalDateTime afterUpdatedAt, Long afterId,
+                                                         String language, String framework, int limit);
+}
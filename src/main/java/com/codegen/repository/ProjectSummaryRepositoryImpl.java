@@ -0,0 +1,34 @@
+package com.codegen.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+class ProjectSummaryRepositoryImpl implements ProjectSummaryRepository {
+
+    private static final String SELECT =
+            "SELECT p.id AS id, p.name AS name, p.description AS description, p.status AS status, " +
+            "p.language AS language, p.framework AS framework, p.updatedAt AS updatedAt " +
+            "FROM Project p";
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<ProjectRepository.ProjectSummary> findSummaries(Long userId, LocalDateTime afterUpdatedAt, Long afterId,
+                                                                String language, String framework, int limit) {
+        FilteredQuery query = new FilteredQuery(SELECT)
+                .and("p.user.id = :userId").param("userId", userId);
+        if (afterUpdatedAt != null) {
+            query.and("(p.updatedAt < :afterUpdatedAt OR (p.updatedAt = :afterUpdatedAt AND p.id < :afterId))")
+                    .param("afterUpdatedAt", afterUpdatedAt)
+                    .param("afterId", afterId);
+        }
+        query.andIfPresent("p.language = :language", "language", language)
+                .andIfPresent("p.framework = :framework", "framework", framework);
+
+        return query.fetch(entityManager, "p.updatedAt DESC, p.id DESC", limit, ProjectRepository.ProjectSummary.class);
+    }
+}
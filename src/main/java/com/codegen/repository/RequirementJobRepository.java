@@ -0,0 +1,64 @@
+package com.codegen.repository;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.JobStatus;
+import com.codegen.model.RequirementJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RequirementJobRepository extends JpaRepository<RequirementJob, Long> {
+
+    /**
+     * Кандидаты на аренду без блокировки: свободные задачи этапа и задачи с истекшей арендой.
+     * Порядок: приоритет, затем номер задачи в очереди пользователя, чтобы один пользователь
+     * с большим пакетом не занимал все слоты
+     */
+    @Query(value = "SELECT ranked.id FROM (" +
+            "    SELECT id, priority, available_at, " +
+            "           ROW_NUMBER() OVER (PARTITION BY priority, user_id ORDER BY available_at, id) AS user_rank " +
+            "    FROM {h-schema}requirement_jobs " +
+            "    WHERE stage = :stage " +
+            "      AND ((status = 'QUEUED' AND available_at <= :now) " +
+            "        OR (status = 'RUNNING' AND lease_expires_at < :now))" +
+            ") ranked " +
+            "ORDER BY ranked.priority DESC, ranked.user_rank, ranked.available_at, ranked.id " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Long> findClaimableIds(String stage, LocalDateTime now, int limit);
+
+    /**
+     * Блокировка кандидатов до конца транзакции, заблокированные другими обработчиками строки пропускаются.
+     * Условие доступности перепроверяется после блокировки: строку мог успеть забрать другой узел
+     */
+    @Query(value = "SELECT * FROM {h-schema}requirement_jobs " +
+            "WHERE id IN :ids " +
+            "  AND stage = :stage " +
+            "  AND ((status = 'QUEUED' AND available_at <= :now) " +
+            "    OR (status = 'RUNNING' AND lease_expires_at < :now)) " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<RequirementJob> lockClaimable(Collection<Long> ids, String stage, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RequirementJob j SET j.leaseExpiresAt = :leaseUntil, j.heartbeatAt = :now " +
+            "WHERE j.id IN :ids AND j.leaseOwner = :owner AND j.status = :status")
+    int extendLeases(Collection<Long> ids, String owner, JobStatus status, LocalDateTime leaseUntil, LocalDateTime now);
+
+    /**
+     * Переход к следующему этапу с освобождением аренды, этап может забрать любой узел
+     */
+    @Modifying
+    @Query("UPDATE RequirementJob j SET j.stage = :stage, j.status = :queued, j.leaseOwner = null, " +
+            "j.leaseExpiresAt = null, j.attempts = 0, j.availableAt = :now, j.updatedAt = :now " +
+            "WHERE j.id = :id AND j.leaseOwner = :owner AND j.status = :running")
+    int advanceStage(Long id, String owner, JobStatus running, JobStatus queued, JobStage stage, LocalDateTime now);
+
+    long countByStatus(JobStatus status);
+
+    boolean existsByRequirementId(Long requirementId);
+}
@@ -1,12 +1,16 @@
 package com.codegen.repository;
 
+import com.codegen.dto.RequirementStatusDTO;
 import com.codegen.model.Requirement;
 import com.codegen.model.RequirementStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RequirementRepository extends JpaRepository<Requirement, Long> {
@@ -16,4 +20,45 @@ public interface RequirementRepository extends JpaRepository<Requirement, Long>
 
     @Query("SELECT r FROM Requirement r WHERE r.user.id = :userId ORDER BY r.createdAt DESC")
     List<Requirement> findRecentByUserId(Long userId);
+
+    @Query("SELECT new com.codegen.dto.RequirementStatusDTO(r.id, r.status, r.updatedAt) FROM Requirement r WHERE r.id = :id")
+    Optional<RequirementStatusDTO> findStatusById(Long id);
+
+    //только колонки requirements, без загрузки сущности и связей
+    @Query("SELECT r.id AS id, r.description AS description, r.language AS language, r.framework AS framework, " +
+            "r.status AS status, r.structuredModel AS structuredModel, r.createdAt AS createdAt " +
+            "FROM Requirement r WHERE r.id = :id")
+    Optional<RequirementView> findViewById(Long id);
+
+    @Query("SELECT new com.codegen.dto.RequirementStatusDTO(r.id, r.status, r.updatedAt) FROM Requirement r WHERE r.id IN :ids")
+    List<RequirementStatusDTO> findStatusByIdIn(Collection<Long> ids);
+
+    //незавершенные требования без задачи в очереди (созданные до появления очереди)
+    @Query("SELECT r FROM Requirement r WHERE r.status IN :statuses " +
+            "AND NOT EXISTS (SELECT j.id FROM RequirementJob j WHERE j.requirementId = r.id) ORDER BY r.createdAt")
+    List<Requirement> findWithoutJob(Collection<RequirementStatus> statuses);
+
+    @Query("SELECT r.id FROM Requirement r WHERE r.batchId = :batchId ORDER BY r.id")
+    List<Long> findIdsByBatchId(Long batchId);
+
+    @Query("SELECT r.status AS status, COUNT(r) AS count FROM Requirement r WHERE r.batchId = :batchId GROUP BY r.status")
+    List<StatusCount> countStatusesByBatchId(Long batchId);
+
+    @Query("SELECT r.status AS status, COUNT(r) AS count FROM Requirement r GROUP BY r.status")
+    List<StatusCount> countStatuses();
+
+    interface RequirementView {
+        Long getId();
+        String getDescription();
+        String getLanguage();
+        String getFramework();
+        RequirementStatus getStatus();
+        String getStructuredModel();
+        LocalDateTime getCreatedAt();
+    }
+
+    interface StatusCount {
+        RequirementStatus getStatus();
+        long getCount();
+    }
 }
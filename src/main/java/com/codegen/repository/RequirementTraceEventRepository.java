@@ -0,0 +1,36 @@
+package com.codegen.repository;
+
+import com.codegen.model.RequirementTraceEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RequirementTraceEventRepository extends JpaRepository<RequirementTraceEvent, Long> {
+
+    List<RequirementTraceEvent> findByRequirementIdOrderByStartedAtAscIdAsc(Long requirementId);
+
+    //попадания в кэш ответов не учитываются, иначе они занижают задержку вызовов LLM
+    @Query(value = "SELECT kind AS kind, name AS name, COUNT(*) AS count, " +
+            "percentile_cont(0.5) WITHIN GROUP (ORDER BY duration_ms) AS p50, " +
+            "percentile_cont(0.95) WITHIN GROUP (ORDER BY duration_ms) AS p95, " +
+            "percentile_cont(0.99) WITHIN GROUP (ORDER BY duration_ms) AS p99, " +
+            "MAX(duration_ms) AS max " +
+            "FROM {h-schema}requirement_trace_events " +
+            "WHERE started_at >= :since AND (cache_hit IS NULL OR cache_hit = false) " +
+            "GROUP BY kind, name ORDER BY kind, name", nativeQuery = true)
+    List<LatencyStats> findLatencyStats(LocalDateTime since);
+
+    interface LatencyStats {
+        String getKind();
+        String getName();
+        long getCount();
+        Double getP50();
+        Double getP95();
+        Double getP99();
+        Long getMax();
+    }
+}
@@ -4,18 +4,32 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
+import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
@@ -32,88 +46,298 @@ public class AIModelService implements IAIModelService {
 
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final AIResponseCache responseCache;
+    private final InFlightRequestCoalescer requestCoalescer;
+    private final GroqRateLimiter rateLimiter;
+    private final PipelineMetrics metrics;
+    private final PromptBuilder promptBuilder;
 
     private static final String SYSTEM_PROMPT = "You are a code generation AI. Respond only with the requested output.";
 
-    @Retry(name = "groqApi")  //3 раза повтор
+    @Retry(name = "groqApi")  //повторы с экспоненциальной задержкой
+    @CircuitBreaker(name = "groqAnalyze")
+    @Bulkhead(name = "groqAnalyze")
     public String analyzeRequirements(String description, String language, String framework) {
         String prompt = String.format(
                 "Analyze requirement: '%s'. Language: %s, Framework: %s. Output structured JSON model with entities, actions, parameters.",
                 description, language, framework
         );
 
-        return callGroqApi(prompt);
+        return callGroqApi(AIOperation.ANALYZE, prompt);
     }
 
     @Retry(name = "groqApi")
+    @CircuitBreaker(name = "groqGenerate")
+    @Bulkhead(name = "groqGenerate")
     public String generateCode(String structuredModel, String language, String framework, String templateContent) {
-        String prompt = String.format(
-                "Generate code based on model: %s. Language: %s, Framework: %s. Use template: %s. Output only code.",
-                structuredModel, language, framework, templateContent
-        );
+        String prompt = promptBuilder.generationPrompt(structuredModel, language, framework, templateContent);
 
-        return callGroqApi(prompt);
+        return callGroqApi(AIOperation.GENERATE, prompt);
     }
 
     @Retry(name = "groqApi")
+    @CircuitBreaker(name = "groqValidate")
+    @Bulkhead(name = "groqValidate")
     public String validateAndOptimize(String sourceCode, String language) {
-        String prompt = String.format(
-                "Validate and optimize code: %s. Language: %s. Output JSON with hasErrors, errors[], suggestions[], qualityScore.",
-                sourceCode, language
-        );
+        String prompt = promptBuilder.validationPrompt(sourceCode, language);
+
+        return callGroqApi(AIOperation.VALIDATE, prompt);
+    }
+
+    /**
+     * Валидация части файла, который не помещается в бюджет токенов
+     */
+    @Retry(name = "groqApi")
+    @CircuitBreaker(name = "groqValidate")
+    @Bulkhead(name = "groqValidate")
+    public String validateAndOptimizeChunk(String chunk, String language, int part, int parts) {
+        String prompt = promptBuilder.validationChunkPrompt(chunk, language, part, parts);
 
-        return callGroqApi(prompt);
+        return callGroqApi(AIOperation.VALIDATE, prompt);
     }
 
     @Retry(name = "groqApi")
+    @CircuitBreaker(name = "groqClarify")
+    @Bulkhead(name = "groqClarify")
     public String clarifyRequirements(String originalRequirement, String context) {
         String prompt = String.format(
                 "Clarify requirement: %s. Context: %s. Suggest questions for clarification.",
                 originalRequirement, context
         );
 
-        return callGroqApi(prompt);
+        return callGroqApi(AIOperation.CLARIFY, prompt);
     }
 
-    private String callGroqApi(String userPrompt) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + apiKey);
-            headers.setContentType(MediaType.APPLICATION_JSON);
+    private String callGroqApi(AIOperation operation, String userPrompt) {
+        String cacheKey = responseCache.key(model, SYSTEM_PROMPT, userPrompt);
+        Optional<String> cached = responseCache.get(operation, cacheKey);
+        if (cached.isPresent()) {
+            log.debug("AI response cache hit for {} ({})", operation, cacheKey);
+            metrics.recordAiCacheHit(operation, cached.get().length());
+            return cached.get();
+        }
+
+        //одинаковые одновременные запросы выполняются один раз
+        return requestCoalescer.execute(cacheKey, () -> {
+            String content = requestCompletion(operation, userPrompt);
+            responseCache.put(operation, cacheKey, content);
+            return content;
+        });
+    }
+
+    /**
+     * Потоковая генерация кода: фрагменты ответа передаются в onChunk по мере получения
+     * Сбой до первого фрагмента повторяется по политике groqApi. После отправленных фрагментов поток
+     * не повторяется, чтобы они не задублировались у клиента: ошибка не повторяемая, вызывающий переходит
+     * на generateCode. Одинаковые одновременные запросы выполняются один раз, присоединившийся
+     * получает ответ одним фрагментом
+     */
+    @Retry(name = "groqApi")
+    @CircuitBreaker(name = "groqGenerate")
+    @Bulkhead(name = "groqGenerate")
+    public String generateCodeStreaming(String structuredModel, String language, String framework,
+                                        String templateContent, Consumer<String> onChunk) {
+        String prompt = promptBuilder.generationPrompt(structuredModel, language, framework, templateContent);
 
-            ObjectNode requestJson = objectMapper.createObjectNode();
-            requestJson.put("model", model);
-            ArrayNode messages = requestJson.putArray("messages");
+        String cacheKey = responseCache.key(model, SYSTEM_PROMPT, prompt);
+        Optional<String> cached = responseCache.get(AIOperation.GENERATE, cacheKey);
+        if (cached.isPresent()) {
+            metrics.recordAiCacheHit(AIOperation.GENERATE, cached.get().length());
+            onChunk.accept(cached.get());
+            return cached.get();
+        }
 
-            ObjectNode systemMessage = objectMapper.createObjectNode();
-            systemMessage.put("role", "system");
-            systemMessage.put("content", SYSTEM_PROMPT);
-            messages.add(systemMessage);
+        boolean[] streamed = new boolean[1];
+        String content = requestCoalescer.execute(cacheKey, () -> {
+            streamed[0] = true;
+            String result = streamCompletion(AIOperation.GENERATE, prompt, onChunk);
+            responseCache.put(AIOperation.GENERATE, cacheKey, result);
+            return result;
+        });
+        if (!streamed[0]) {
+            //ответ получен присоединением к такому же запросу
+            onChunk.accept(content);
+        }
+        return content;
+    }
 
-            ObjectNode userMessage = objectMapper.createObjectNode();
-            userMessage.put("role", "user");
-            userMessage.put("content", userPrompt);
-            messages.add(userMessage);
+    private String requestCompletion(AIOperation operation, String userPrompt) {
+        int estimatedTokens = rateLimiter.estimateTokens(userPrompt);
+        rateLimiter.acquire(estimatedTokens);
 
-            HttpEntity<String> request = new HttpEntity<>(requestJson.toString(), headers);
+        PipelineMetrics.Span span = metrics.start();
+        int bytesOut = 0;
+        try {
+            String body = buildRequestBody(userPrompt, false);
+            bytesOut = body.length();
+            HttpEntity<String> request = new HttpEntity<>(body, buildHeaders());
 
             ResponseEntity<String> response = restTemplate.postForEntity(apiUrl, request, String.class);
+            rateLimiter.updateFromHeaders(response.getHeaders());
 
             if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode jsonResponse = objectMapper.readTree(response.getBody());
-                String content = jsonResponse.path("choices").get(0).path("message").path("content").asText();
-                return cleanMarkdown(content);
+                Completion completion = parseCompletion(response.getBody());
+                rateLimiter.reconcile(estimatedTokens, completion.totalTokens());
+                metrics.recordAiCall(operation, model, false, span, PipelineMetrics.SUCCESS,
+                        bytesOut, response.getBody().length(), completion.promptTokens(), completion.completionTokens());
+                return completion.content();
             } else {
                 throw new RuntimeException("Groq API error: " + response.getStatusCode());
             }
         } catch (Exception e) {
             log.error("Error calling Groq API: ", e);
-            throw new RuntimeException("Failed to call Groq API: " + e.getMessage());
+            RuntimeException error = translateError("Failed to call Groq API", e);
+            metrics.recordAiCall(operation, model, false, span, outcomeOf(error), bytesOut, 0, 0, 0);
+            throw error;
         }
     }
 
-    private String cleanMarkdown(String text) {
+    /**
+     * Запрос с stream: true, ответ разбирается построчно как SSE
+     */
+    private String streamCompletion(AIOperation operation, String userPrompt, Consumer<String> onChunk) {
+        int estimatedTokens = rateLimiter.estimateTokens(userPrompt);
+        rateLimiter.acquire(estimatedTokens);
+
+        PipelineMetrics.Span span = metrics.start();
+        String body = buildRequestBody(userPrompt, true);
+        //прочитанные байты и usage из последнего фрагмента: [bytesIn, promptTokens, completionTokens]
+        int[] received = new int[3];
+        StringBuilder content = new StringBuilder();
+        try {
+            HttpHeaders headers = buildHeaders();
+
+            restTemplate.execute(apiUrl, HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().putAll(headers);
+                        request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                        request.getBody().write(body.getBytes(StandardCharsets.UTF_8));
+                    },
+                    response -> {
+                        rateLimiter.updateFromHeaders(response.getHeaders());
+                        if (response.getStatusCode() != HttpStatus.OK) {
+                            throw new RuntimeException("Groq API error: " + response.getStatusCode());
+                        }
+                        BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            received[0] += line.length() + 1;
+                            if (!line.startsWith("data:")) {
+                                continue;
+                            }
+                            String data = line.substring(5).trim();
+                            if ("[DONE]".equals(data)) {
+                                break;
+                            }
+                            JsonNode chunkJson = objectMapper.readTree(data);
+                            JsonNode usage = chunkJson.path("x_groq").path("usage");
+                            if (usage.has("total_tokens")) {
+                                rateLimiter.reconcile(estimatedTokens, usage.get("total_tokens").asInt());
+                                received[1] = usage.path("prompt_tokens").asInt();
+                                received[2] = usage.path("completion_tokens").asInt();
+                            }
+                            JsonNode delta = chunkJson.path("choices").path(0).path("delta");
+                            if (delta.hasNonNull("content")) {
+                                String chunk = delta.get("content").asText();
+                                content.append(chunk);
+                                onChunk.accept(chunk);
+                            }
+                        }
+                        return null;
+                    });
+
+            metrics.recordAiCall(operation, model, true, span, PipelineMetrics.SUCCESS,
+                    body.length(), received[0], received[1], received[2]);
+            return cleanMarkdown(content.toString());
+        } catch (Exception e) {
+            log.error("Error streaming from Groq API: ", e);
+            RuntimeException error = translateError("Failed to stream from Groq API", e);
+            metrics.recordAiCall(operation, model, true, span, outcomeOf(error),
+                    body.length(), received[0], received[1], received[2]);
+            if (error instanceof GroqApiException && !content.isEmpty()) {
+                //часть ответа уже у клиента, повтор потока ее задублирует
+                throw new RuntimeException("Stream interrupted after partial output: " + error.getMessage(), error);
+            }
+            throw error;
+        }
+    }
+
+    private String outcomeOf(RuntimeException error) {
+        return error instanceof GroqApiException groqError && groqError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS.value()
+                ? PipelineMetrics.THROTTLED
+                : PipelineMetrics.FAILURE;
+    }
+
+    /**
+     * 429, 5xx и сетевые сбои - повторяемая GroqApiException, остальное - обычная ошибка
+     */
+    private RuntimeException translateError(String message, Exception e) {
+        if (e instanceof RestClientResponseException responseError) {
+            int status = responseError.getStatusCode().value();
+            if (status == HttpStatus.TOO_MANY_REQUESTS.value() || responseError.getStatusCode().is5xxServerError()) {
+                HttpHeaders headers = responseError.getResponseHeaders();
+                Duration retryAfter = headers != null
+                        ? GroqRateLimiter.parseDuration(headers.getFirst(HttpHeaders.RETRY_AFTER))
+                        : null;
+                if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                    rateLimiter.blockFor(retryAfter != null ? retryAfter : Duration.ofSeconds(1));
+                }
+                return new GroqApiException(message + ": " + e.getMessage(), status, retryAfter);
+            }
+        }
+        if (e instanceof ResourceAccessException) {
+            return new GroqApiException(message + ": " + e.getMessage(), e);
+        }
+        return new RuntimeException(message + ": " + e.getMessage());
+    }
+
+    private HttpHeaders buildHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + apiKey);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+
+    String buildRequestBody(String userPrompt, boolean stream) {
+        ObjectNode requestJson = objectMapper.createObjectNode();
+        requestJson.put("model", model);
+        if (stream) {
+            requestJson.put("stream", true);
+        }
+        ArrayNode messages = requestJson.putArray("messages");
+
+        ObjectNode systemMessage = objectMapper.createObjectNode();
+        systemMessage.put("role", "system");
+        systemMessage.put("content", SYSTEM_PROMPT);
+        messages.add(systemMessage);
+
+        ObjectNode userMessage = objectMapper.createObjectNode();
+        userMessage.put("role", "user");
+        userMessage.put("content", userPrompt);
+        messages.add(userMessage);
+
+        return requestJson.toString();
+    }
+
+    /**
+     * Разбор ответа chat completions: текст без markdown и фактический расход токенов
+     */
+    Completion parseCompletion(String responseBody) throws IOException {
+        JsonNode jsonResponse = objectMapper.readTree(responseBody);
+        String content = jsonResponse.path("choices").get(0).path("message").path("content").asText();
+        JsonNode usage = jsonResponse.path("usage");
+        return new Completion(cleanMarkdown(content),
+                usage.path("prompt_tokens").asInt(),
+                usage.path("completion_tokens").asInt(),
+                usage.path("total_tokens").asInt());
+    }
+
+    String cleanMarkdown(String text) {
         if (text == null) return "";
         return text.replaceAll("```[a-z]*", "").replace("```", "").trim();
     }
+
+    record Completion(String content, int promptTokens, int completionTokens, int totalTokens) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.codegen.service;
+
+/**
+ * Типы обращений к AI модели
+ */
+public enum AIOperation {
+    ANALYZE("groqAnalyze"),   //анализ требований
+    GENERATE("groqGenerate"), //генерация кода
+    VALIDATE("groqValidate"), //валидация и оптимизация
+    CLARIFY("groqClarify");   //уточнение требований
+
+    private final String resilienceName; //имя circuit breaker и bulkhead
+
+    AIOperation(String resilienceName) {
+        this.resilienceName = resilienceName;
+    }
+
+    public String getResilienceName() {
+        return resilienceName;
+    }
+}
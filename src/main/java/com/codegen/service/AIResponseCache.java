@@ -0,0 +1,161 @@
+package com.codegen.service;
+
+import com.codegen.model.AIResponseCacheEntry;
+import com.codegen.repository.AIResponseCacheRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Кэш ответов AI модели с адресацией по содержимому
+ * Локальный уровень в памяти и необязательный уровень в PostgreSQL
+ */
+@Component
+@Slf4j
+public class AIResponseCache {
+
+    private final AIResponseCacheRepository cacheRepository;
+    private final Cache<String, String> localCache;
+    private final boolean enabled;
+    private final boolean persistentEnabled;
+    private final Duration persistentTtl;
+    private final Set<AIOperation> disabledOperations;
+    private final String model;
+
+    private final Counter localHits;
+    private final Counter persistentHits;
+    private final Counter misses;
+
+    public AIResponseCache(AIResponseCacheRepository cacheRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${ai.cache.enabled:true}") boolean enabled,
+                           @Value("${ai.cache.max-size:1000}") long maxSize,
+                           @Value("${ai.cache.ttl:24h}") Duration ttl,
+                           @Value("${ai.cache.persistent.enabled:false}") boolean persistentEnabled,
+                           @Value("${ai.cache.persistent.ttl:7d}") Duration persistentTtl,
+                           @Value("${ai.cache.disabled-operations:CLARIFY}") Set<AIOperation> disabledOperations,
+                           @Value("${ai.model}") String model) {
+        this.cacheRepository = cacheRepository;
+        this.enabled = enabled;
+        this.persistentEnabled = persistentEnabled;
+        this.persistentTtl = persistentTtl;
+        this.disabledOperations = disabledOperations;
+        this.model = model;
+
+        Counter evictions = Counter.builder("ai.cache.evictions")
+                .description("Entries evicted from the local AI response cache by size or TTL")
+                .register(meterRegistry);
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .evictionListener((key, value, cause) -> evictions.increment())
+                .build();
+
+        this.localHits = Counter.builder("ai.cache.hits").tag("tier", "local").register(meterRegistry);
+        this.persistentHits = Counter.builder("ai.cache.hits").tag("tier", "persistent").register(meterRegistry);
+        this.misses = Counter.builder("ai.cache.misses").register(meterRegistry);
+    }
+
+    /**
+     * Удаление записей другой модели и устаревших записей при старте
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void purgeStaleEntries() {
+        if (!enabled || !persistentEnabled) {
+            return;
+        }
+        try {
+            int removed = cacheRepository.deleteStale(model, LocalDateTime.now().minus(persistentTtl));
+            log.info("Removed {} stale AI cache entries (current model: {})", removed, model);
+        } catch (Exception e) {
+            log.warn("Failed to purge AI response cache: {}", e.getMessage());
+        }
+    }
+
+    public boolean isCacheable(AIOperation operation) {
+        return enabled && !disabledOperations.contains(operation);
+    }
+
+    /**
+     * Ключ кэша: хэш от модели, системного и пользовательского промпта
+     */
+    public String key(String model, String systemPrompt, String userPrompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(systemPrompt.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(userPrompt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Optional<String> get(AIOperation operation, String key) {
+        if (!isCacheable(operation)) {
+            return Optional.empty();
+        }
+
+        String cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            localHits.increment();
+            return Optional.of(cached);
+        }
+
+        if (persistentEnabled) {
+            try {
+                Optional<AIResponseCacheEntry> entry = cacheRepository.findById(key)
+                        .filter(e -> e.getCreatedAt().isAfter(LocalDateTime.now().minus(persistentTtl)));
+                if (entry.isPresent()) {
+                    persistentHits.increment();
+                    localCache.put(key, entry.get().getResponse());
+                    return Optional.of(entry.get().getResponse());
+                }
+            } catch (Exception e) {
+                log.warn("Failed to read AI response cache entry {}: {}", key, e.getMessage());
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(AIOperation operation, String key, String response) {
+        if (!isCacheable(operation) || response == null || response.isBlank()) {
+            return;
+        }
+
+        localCache.put(key, response);
+
+        if (persistentEnabled) {
+            try {
+                AIResponseCacheEntry entry = new AIResponseCacheEntry();
+                entry.setCacheKey(key);
+                entry.setModel(model);
+                entry.setOperation(operation.name());
+                entry.setResponse(response);
+                entry.setCreatedAt(LocalDateTime.now());
+                cacheRepository.save(entry);
+            } catch (Exception e) {
+                log.warn("Failed to store AI response cache entry {}: {}", key, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.codegen.service;
+
+import com.codegen.dto.BatchStatusDTO;
+import com.codegen.dto.RequirementCreateDTO;
+import com.codegen.model.GenerationBatch;
+import com.codegen.model.Project;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementStatus;
+import com.codegen.model.User;
+import com.codegen.repository.BulkInsertRepository;
+import com.codegen.repository.GenerationBatchRepository;
+import com.codegen.repository.ProjectRepository;
+import com.codegen.repository.RequirementRepository;
+import com.codegen.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетное создание требований: пользователь и проекты загружаются один раз,
+ * требования и задачи очереди вставляются JDBC batch в одной транзакции
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchGenerationService {
+
+    private final UserRepository userRepository;
+    private final ProjectRepository projectRepository;
+    private final RequirementRepository requirementRepository;
+    private final GenerationBatchRepository batchRepository;
+    private final BulkInsertRepository bulkInsertRepository;
+    private final RequirementJobService jobService;
+
+    @Transactional
+    public BatchStatusDTO createBatch(Long userId, List<RequirementCreateDTO> dtos, int priority) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+
+        //все проекты пакета одним запросом
+        List<Long> projectIds = dtos.stream()
+                .map(RequirementCreateDTO::getProjectId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Project> projects = projectRepository.findAllById(projectIds).stream()
+                .collect(Collectors.toMap(Project::getId, Function.identity()));
+
+        GenerationBatch batch = new GenerationBatch();
+        batch.setUser(user);
+        batch.setSize(dtos.size());
+        batch.setPriority(priority);
+        batch = batchRepository.save(batch);
+
+        List<Requirement> requirements = new ArrayList<>(dtos.size());
+        for (RequirementCreateDTO dto : dtos) {
+            Requirement requirement = new Requirement();
+            requirement.setDescription(dto.getDescription());
+            requirement.setLanguage(dto.getLanguage());
+            requirement.setFramework(dto.getFramework());
+            requirement.setUser(user);
+            requirement.setBatchId(batch.getId());
+            if (dto.getProjectId() != null) {
+                requirement.setProject(projects.get(dto.getProjectId()));
+            }
+            requirements.add(requirement);
+        }
+
+        bulkInsertRepository.insertRequirements(requirements);
+        List<Long> requirementIds = requirements.stream().map(Requirement::getId).collect(Collectors.toList());
+        jobService.enqueueAll(requirementIds, userId, priority);
+
+        log.info("Created batch {} with {} requirements for user {}", batch.getId(), requirements.size(), userId);
+
+        return toStatus(batch, requirementIds, Map.of(RequirementStatus.PENDING, (long) requirements.size()));
+    }
+
+    @Transactional(readOnly = true)
+    public BatchStatusDTO getBatchStatus(Long batchId, Long userId) {
+        GenerationBatch batch = batchRepository.findByIdAndUserId(batchId, userId)
+                .orElseThrow(() -> new IllegalArgumentException("Batch not found"));
+
+        Map<RequirementStatus, Long> counts = requirementRepository.countStatusesByBatchId(batchId).stream()
+                .collect(Collectors.toMap(RequirementRepository.StatusCount::getStatus,
+                        RequirementRepository.StatusCount::getCount));
+
+        return toStatus(batch, requirementRepository.findIdsByBatchId(batchId), counts);
+    }
+
+    private BatchStatusDTO toStatus(GenerationBatch batch, List<Long> requirementIds,
+                                    Map<RequirementStatus, Long> counts) {
+        long completed = counts.getOrDefault(RequirementStatus.COMPLETED, 0L);
+        long failed = counts.getOrDefault(RequirementStatus.FAILED, 0L);
+        int total = batch.getSize();
+
+        Map<String, Long> statusCounts = new LinkedHashMap<>();
+        for (RequirementStatus status : RequirementStatus.values()) {
+            statusCounts.put(status.name(), counts.getOrDefault(status, 0L));
+        }
+
+        BatchStatusDTO dto = new BatchStatusDTO();
+        dto.setBatchId(batch.getId());
+        dto.setTotal(total);
+        dto.setCompleted(completed);
+        dto.setFailed(failed);
+        dto.setInProgress(total - completed - failed);
+        dto.setProgressPercent(total == 0 ? 100 : (int) ((completed + failed) * 100 / total));
+        dto.setFinished(completed + failed >= total);
+        dto.setStatusCounts(statusCounts);
+        dto.setRequirementIds(requirementIds);
+        dto.setCreatedAt(batch.getCreatedAt());
+        return dto;
+    }
+}
@@ -4,15 +4,19 @@ import com.codegen.model.CodeTemplate;
 import com.codegen.model.GeneratedCode;
 import com.codegen.model.Requirement;
 import com.codegen.model.RequirementStatus;
-import com.codegen.repository.CodeTemplateRepository;
 import com.codegen.repository.GeneratedCodeRepository;
-import com.codegen.repository.RequirementRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
 
 /**
  * Сервис генерации кода
@@ -24,17 +28,28 @@ import java.util.List;
 public class CodeGenerationService {
 
     private final AIModelService aiModelService;
-    private final CodeTemplateRepository templateRepository;
+    private final TemplateCache templateCache;
     private final GeneratedCodeRepository generatedCodeRepository;
-    private final RequirementRepository requirementRepository;
+    private final PipelineExecutor pipelineExecutor;
+    private final GenerationStreamService streamService;
+    private final RequirementStatusService statusService;
+    private final TransactionTemplate transactionTemplate;
+    private final TemplateUsageCounter usageCounter;
+    private final PipelineMetrics metrics;
+    private final PromptBuilder promptBuilder;
+
+    @Value("${pipeline.generation.parallelism:4}")
+    private int generationParallelism;
+
+    @Value("${ai.streaming.enabled:true}")
+    private boolean streamingEnabled;
 
     /**
      * Генерация кода для требования
      */
     public List<GeneratedCode> generateCode(Requirement requirement) {
         try {
-            requirement.setStatus(RequirementStatus.GENERATING);
-            requirementRepository.save(requirement);
+            statusService.updateStatus(requirement, RequirementStatus.GENERATING);
 
             //получение шаблонов из базы знаний
             List<CodeTemplate> templates = findSuitableTemplates(
@@ -42,47 +57,96 @@ public class CodeGenerationService {
                     requirement.getFramework()
             );
 
-            List<GeneratedCode> generatedCodes = new ArrayList<>();
+            //общий для всех шаблонов заголовок не повторяем в каждом промпте
+            List<String> templateContents = promptBuilder.compactTemplates(templates.stream()
+                    .map(CodeTemplate::getTemplateContent)
+                    .toList());
+
+            //параллельная генерация кода по каждому шаблону
+            List<Callable<String>> tasks = new ArrayList<>();
+            List<String> fileNames = new ArrayList<>();
+            for (int i = 0; i < templates.size(); i++) {
+                String fileName = generateFileName(templates.get(i), requirement);
+                fileNames.add(fileName);
+                String templateContent = templateContents.get(i);
+                tasks.add(() -> metrics.timeStep("generate.template",
+                        () -> generateSource(requirement, templateContent, fileName)));
+            }
+            List<String> sources = pipelineExecutor.invokeAll(tasks, generationParallelism);
 
-            //генерация кода
-            for (CodeTemplate template : templates) {
-                String sourceCode = aiModelService.generateCode(
-                        requirement.getStructuredModel(),
-                        requirement.getLanguage(),
-                        requirement.getFramework(),
-                        template.getTemplateContent()
-                );
+            List<GeneratedCode> codes = new ArrayList<>();
+            for (int i = 0; i < templates.size(); i++) {
+                CodeTemplate template = templates.get(i);
 
                 GeneratedCode code = new GeneratedCode();
-                code.setSourceCode(sourceCode);
-                code.setFileName(generateFileName(template, requirement));
+                code.setSourceCode(sources.get(i));
+                code.setFileName(fileNames.get(i));
                 code.setPackagePath(generatePackagePath(requirement));
                 code.setRequirement(requirement);
-                code.setTemplate(template);
-
-                generatedCodes.add(generatedCodeRepository.save(code));
-
-                //увеличение счетчика
-                template.setUsageCount(template.getUsageCount() + 1);
-                templateRepository.save(template);
+                //шаблоны по умолчанию не хранятся в базе
+                code.setTemplate(template.getId() != null ? template : null);
+                codes.add(code);
             }
 
-            requirement.setStatus(RequirementStatus.VALIDATING);
-            requirementRepository.save(requirement);
+            //весь код требования и статус - одна транзакция, вставки идут одним пакетом
+            List<GeneratedCode> generatedCodes = metrics.timeStep("persist.codes",
+                    () -> transactionTemplate.execute(status -> {
+                        List<GeneratedCode> saved = generatedCodeRepository.saveAll(codes);
+                        statusService.updateStatus(requirement, RequirementStatus.VALIDATING);
+                        return saved;
+                    }));
+
+            //увеличение счетчиков
+            templates.stream()
+                    .map(CodeTemplate::getId)
+                    .filter(Objects::nonNull)
+                    .forEach(usageCounter::increment);
 
             log.info("Generated {} code files for requirement {}",
                     generatedCodes.size(), requirement.getId());
 
             return generatedCodes;
 
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            //AI недоступен - решение об отложенной обработке принимает конвейер
+            throw e;
         } catch (Exception e) {
             log.error("Error generating code for requirement {}: ", requirement.getId(), e);
-            requirement.setStatus(RequirementStatus.FAILED);
-            requirementRepository.save(requirement);
+            statusService.updateStatus(requirement, RequirementStatus.FAILED);
             throw new RuntimeException("Failed to generate code: " + e.getMessage());
         }
     }
 
+    /**
+     * Генерация одного файла, с потоковой передачей клиенту если он подписан
+     */
+    private String generateSource(Requirement requirement, String templateContent, String fileName) {
+        if (streamingEnabled && streamService.hasSubscribers(requirement.getId())) {
+            try {
+                return aiModelService.generateCodeStreaming(
+                        requirement.getStructuredModel(),
+                        requirement.getLanguage(),
+                        requirement.getFramework(),
+                        templateContent,
+                        chunk -> streamService.publishChunk(requirement.getId(), fileName, chunk)
+                );
+            } catch (CallNotPermittedException | BulkheadFullException | GroqApiException e) {
+                //повторы groqApi уже исчерпаны потоковым вызовом
+                throw e;
+            } catch (Exception e) {
+                log.warn("Streaming generation failed for requirement {}, falling back to a regular call: {}",
+                        requirement.getId(), e.getMessage());
+            }
+        }
+
+        return aiModelService.generateCode(
+                requirement.getStructuredModel(),
+                requirement.getLanguage(),
+                requirement.getFramework(),
+                templateContent
+        );
+    }
+
     /**
      * Поиск подходящих шаблонов из базы знаний
      */
@@ -90,9 +154,9 @@ public class CodeGenerationService {
         List<CodeTemplate> templates;
 
         if (framework != null && !framework.isEmpty()) {
-            templates = templateRepository.findByLanguageAndFramework(language, framework);
+            templates = templateCache.findByLanguageAndFramework(language, framework);
         } else {
-            templates = templateRepository.findByLanguage(language);
+            templates = templateCache.findByLanguage(language);
         }
 
         //если нет, возвращаем базовые шаблоны
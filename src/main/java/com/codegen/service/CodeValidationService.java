@@ -9,12 +9,20 @@ import com.codegen.repository.RequirementRepository;
 import com.codegen.repository.ValidationReportRepository;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Сервис валидации и оптимизации кода
@@ -29,22 +37,74 @@ public class CodeValidationService {
     private final GeneratedCodeRepository codeRepository;
     private final RequirementRepository requirementRepository;
     private final ObjectMapper objectMapper;
+    private final PipelineExecutor pipelineExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final RequirementStatusService statusService;
+    private final PipelineMetrics metrics;
+    private final PromptBuilder promptBuilder;
+
+    @Value("${pipeline.validation.parallelism:4}")
+    private int validationParallelism;
 
     /**
      * Валидация сгенерированного кода
      */
     @Transactional
     public ValidationReport validateCode(GeneratedCode generatedCode) {
+        ValidationReport report = buildReport(generatedCode, generatedCode.getRequirement().getLanguage());
+        report = reportRepository.save(report);
+
+        log.info("Validation completed for code {}, quality score: {}",
+                generatedCode.getId(), report.getQualityScore());
+
+        return report;
+    }
+
+    /**
+     * Валидация всех кодов для требования
+     * Запросы к AI выполняются параллельно вне транзакции, отчеты сохраняются одной короткой транзакцией
+     */
+    public void validateRequirementCodes(Requirement requirement) {
         try {
-            String language = generatedCode.getRequirement().getLanguage();
+            //код вместе с отчетами одним запросом, без отдельного запроса отчета на каждый файл
+            List<GeneratedCode> codes = codeRepository.findWithReportsByRequirementId(requirement.getId());
+            String language = requirement.getLanguage();
+
+            List<Callable<ValidationReport>> tasks = new ArrayList<>();
+            for (GeneratedCode code : codes) {
+                tasks.add(() -> metrics.timeStep("validate.file", () -> buildReport(code, language)));
+            }
+            List<ValidationReport> reports = pipelineExecutor.invokeAll(tasks, validationParallelism);
 
-            String validationResult = aiModelService.validateAndOptimize(
-                    generatedCode.getSourceCode(),
-                    language
-            );
+            metrics.timeStep("persist.reports", () -> transactionTemplate.execute(status -> {
+                reportRepository.saveAll(reports);
 
+                //обновляем статус
+                Requirement currentReq = requirementRepository.findById(requirement.getId())
+                        .orElseThrow(() -> new RuntimeException("Requirement not found"));
+
+                return statusService.updateStatus(currentReq, RequirementStatus.COMPLETED);
+            }));
+
+            log.info("All codes validated for requirement {}", requirement.getId());
+
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            //AI недоступен - решение об отложенной обработке принимает конвейер
+            throw e;
+        } catch (Exception e) {
+            log.error("Error during validation: ", e);
+            updateStatusToFailed(requirement.getId());
+            throw new RuntimeException("Validation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Запрос к AI и разбор ответа в отчет без сохранения
+     */
+    private ValidationReport buildReport(GeneratedCode generatedCode, String language) {
+        try {
             //парсинг JSON ответа
-            JsonNode resultNode = objectMapper.readTree(validationResult);
+            JsonNode resultNode = validate(generatedCode.getSourceCode(), language);
 
             ValidationReport report = new ValidationReport();
             report.setGeneratedCode(generatedCode);
@@ -59,13 +119,10 @@ public class CodeValidationService {
             }
             report.setQualityScore(score);
 
-            report = reportRepository.save(report);
-
-            log.info("Validation completed for code {}, quality score: {}",
-                    generatedCode.getId(), report.getQualityScore());
-
             return report;
 
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error validating code {}: ", generatedCode.getId(), e);
             throw new RuntimeException("Failed to validate code: " + e.getMessage());
@@ -73,39 +130,69 @@ public class CodeValidationService {
     }
 
     /**
-     * Валидация всех кодов для требования
+     * Файл в пределах бюджета токенов валидируется одним запросом, больший - по частям с объединением ответов
      */
-    @Transactional
-    public void validateRequirementCodes(Requirement requirement) {
-        try {
-            List<GeneratedCode> codes = codeRepository.findByRequirementId(requirement.getId());
+    private JsonNode validate(String sourceCode, String language) throws Exception {
+        List<PromptBuilder.SourceChunk> chunks = promptBuilder.splitForValidation(sourceCode);
+        if (chunks.size() == 1) {
+            return objectMapper.readTree(aiModelService.validateAndOptimize(sourceCode, language));
+        }
 
-            for (GeneratedCode code : codes) {
-                validateCode(code);
-            }
+        metrics.recordPromptOverBudget(AIOperation.VALIDATE);
+        log.info("Source of ~{} tokens is over the validation budget, validating in {} parts",
+                PromptBuilder.estimateTokens(sourceCode), chunks.size());
 
-            //обновляем статус
-            Requirement currentReq = requirementRepository.findById(requirement.getId())
-                    .orElseThrow(() -> new RuntimeException("Requirement not found"));
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            PromptBuilder.SourceChunk chunk = chunks.get(i);
+            int part = i + 1;
+            tasks.add(() -> aiModelService.validateAndOptimizeChunk(chunk.code(), language, part, chunks.size()));
+        }
+        List<String> results = pipelineExecutor.invokeAll(tasks, validationParallelism);
 
-            currentReq.setStatus(RequirementStatus.COMPLETED);
-            requirementRepository.save(currentReq);
+        return mergeChunkResults(chunks, results);
+    }
 
-            log.info("All codes validated for requirement {}", requirement.getId());
+    /**
+     * Объединение ответов по частям: ошибки с номерами строк от начала файла, общие рекомендации,
+     * оценка качества - среднее, взвешенное по числу строк части
+     */
+    private JsonNode mergeChunkResults(List<PromptBuilder.SourceChunk> chunks, List<String> results) throws Exception {
+        ObjectNode merged = objectMapper.createObjectNode();
+        ArrayNode errors = merged.putArray("errors");
+        ArrayNode suggestions = merged.putArray("suggestions");
+        boolean hasSyntaxErrors = false;
+        long weightedScore = 0;
+        long scoredLines = 0;
+
+        for (int i = 0; i < chunks.size(); i++) {
+            PromptBuilder.SourceChunk chunk = chunks.get(i);
+            JsonNode part = objectMapper.readTree(results.get(i));
+
+            for (JsonNode error : part.path("errors")) {
+                if (error instanceof ObjectNode errorObject && errorObject.path("line").canConvertToInt()) {
+                    errorObject.put("line", errorObject.get("line").asInt() + chunk.firstLine() - 1);
+                }
+                errors.add(error);
+            }
+            part.path("suggestions").forEach(suggestions::add);
+            hasSyntaxErrors |= part.path("hasSyntaxErrors").asBoolean(false);
+            if (part.has("qualityScore")) {
+                weightedScore += (long) part.get("qualityScore").asInt() * chunk.lineCount();
+                scoredLines += chunk.lineCount();
+            }
+        }
 
-        } catch (Exception e) {
-            log.error("Error during validation: ", e);
-            updateStatusToFailed(requirement.getId());
-            throw new RuntimeException("Validation failed: " + e.getMessage());
+        merged.put("hasSyntaxErrors", hasSyntaxErrors);
+        if (scoredLines > 0) {
+            merged.put("qualityScore", Math.round((double) weightedScore / scoredLines));
         }
+        return merged;
     }
 
     @Transactional(propagation = org.springframework.transaction.annotation.Propagation.REQUIRES_NEW)
     public void updateStatusToFailed(Long requirementId) {
-        requirementRepository.findById(requirementId).ifPresent(req -> {
-            req.setStatus(RequirementStatus.FAILED);
-            requirementRepository.save(req);
-        });
+        statusService.updateStatus(requirementId, RequirementStatus.FAILED);
     }
 
     /**
@@ -0,0 +1,145 @@
+package com.codegen.service;
+
+import com.codegen.dto.RequirementStatusDTO;
+import com.codegen.model.RequirementStatus;
+import com.codegen.repository.RequirementRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Сервис потоковой передачи статусов и генерируемого кода клиенту через Server-Sent Events
+ * Подписки локальны для узла: фрагменты кода приходят только если этап выполняет этот же узел,
+ * смены статуса на других узлах подхватываются периодической сверкой с БД
+ */
+@Service
+@Slf4j
+public class GenerationStreamService {
+
+    private final Map<Long, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    //последний отправленный статус по требованию
+    private final Map<Long, String> lastStatuses = new ConcurrentHashMap<>();
+    private final RequirementRepository requirementRepository;
+    private final long emitterTimeoutMillis;
+
+    public GenerationStreamService(RequirementRepository requirementRepository,
+                                   @Value("${ai.streaming.emitter-timeout:10m}") Duration emitterTimeout) {
+        this.requirementRepository = requirementRepository;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+    }
+
+    /**
+     * Подписка клиента на поток требования
+     * Сразу отправляется текущий статус, для завершенного требования поток закрывается
+     */
+    public SseEmitter subscribe(Long requirementId, RequirementStatusDTO current) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+
+        try {
+            emitter.send(SseEmitter.event().name("status").data(current));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        if ("COMPLETED".equals(current.getStatus()) || "FAILED".equals(current.getStatus())) {
+            emitter.complete();
+            return emitter;
+        }
+
+        emitters.computeIfAbsent(requirementId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        lastStatuses.putIfAbsent(requirementId, current.getStatus());
+
+        emitter.onCompletion(() -> remove(requirementId, emitter));
+        emitter.onTimeout(() -> remove(requirementId, emitter));
+        emitter.onError(e -> remove(requirementId, emitter));
+
+        return emitter;
+    }
+
+    /**
+     * Рассылка смены статуса после фиксации транзакции
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(RequirementStatusChangedEvent event) {
+        if (!emitters.containsKey(event.requirementId())) {
+            return;
+        }
+        lastStatuses.put(event.requirementId(), event.status().name());
+        send(event.requirementId(), "status",
+                new RequirementStatusDTO(event.requirementId(), event.status(), event.changedAt()));
+
+        if (event.isTerminal()) {
+            List<SseEmitter> subscribers = emitters.remove(event.requirementId());
+            lastStatuses.remove(event.requirementId());
+            if (subscribers != null) {
+                subscribers.forEach(SseEmitter::complete);
+            }
+        }
+    }
+
+    /**
+     * Сверка статусов подписанных требований с БД: этапы могут выполняться на других узлах
+     */
+    @Scheduled(fixedDelayString = "${ai.streaming.status-refresh-ms:2000}")
+    public void refreshStatuses() {
+        if (emitters.isEmpty()) {
+            return;
+        }
+
+        for (RequirementStatusDTO status : requirementRepository.findStatusByIdIn(emitters.keySet())) {
+            if (!status.getStatus().equals(lastStatuses.get(status.getId()))) {
+                onStatusChanged(new RequirementStatusChangedEvent(
+                        status.getId(), RequirementStatus.valueOf(status.getStatus()), status.getUpdatedAt()));
+            }
+        }
+    }
+
+    /**
+     * Отправка очередного фрагмента кода всем подписчикам
+     */
+    public void publishChunk(Long requirementId, String fileName, String content) {
+        send(requirementId, "chunk", Map.of("fileName", fileName, "content", content));
+    }
+
+    public boolean hasSubscribers(Long requirementId) {
+        List<SseEmitter> subscribers = emitters.get(requirementId);
+        return subscribers != null && !subscribers.isEmpty();
+    }
+
+    private void send(Long requirementId, String eventName, Object data) {
+        List<SseEmitter> subscribers = emitters.get(requirementId);
+        if (subscribers == null) {
+            return;
+        }
+
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping SSE subscriber for requirement {}: {}", requirementId, e.getMessage());
+                remove(requirementId, emitter);
+            }
+        }
+    }
+
+    private void remove(Long requirementId, SseEmitter emitter) {
+        emitters.computeIfPresent(requirementId, (id, list) -> {
+            list.remove(emitter);
+            if (list.isEmpty()) {
+                lastStatuses.remove(id);
+                return null;
+            }
+            return list;
+        });
+    }
+}
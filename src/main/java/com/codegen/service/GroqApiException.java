@@ -0,0 +1,27 @@
+package com.codegen.service;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Временная ошибка Groq API (429, 5xx, сетевой сбой), которую имеет смысл повторить
+ */
+@Getter
+public class GroqApiException extends RuntimeException {
+
+    private final int statusCode;
+    private final Duration retryAfter; //из заголовка Retry-After, может быть null
+
+    public GroqApiException(String message, int statusCode, Duration retryAfter) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    public GroqApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryAfter = null;
+    }
+}
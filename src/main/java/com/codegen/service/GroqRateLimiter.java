@@ -0,0 +1,201 @@
+package com.codegen.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Клиентский ограничитель запросов к Groq
+ * Два токен-бакета: запросы в минуту и токены (промпт + ответ) в минуту.
+ * Ожидающие обслуживаются по очереди, состояние уточняется по заголовкам x-ratelimit-*
+ */
+@Component
+@Slf4j
+public class GroqRateLimiter {
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final double requestsPerMinute;
+    private final double tokensPerMinute;
+    private final int completionTokenEstimate;
+
+    //справедливая очередь: первый в очереди ждет пополнения, остальные стоят за ним
+    private final ReentrantLock queue = new ReentrantLock(true);
+    private final Timer waitTimer;
+
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefillNanos;
+    private long blockedUntilNanos;
+
+    public GroqRateLimiter(@Value("${ai.ratelimit.requests-per-minute:30}") int requestsPerMinute,
+                           @Value("${ai.ratelimit.tokens-per-minute:12000}") int tokensPerMinute,
+                           @Value("${ai.ratelimit.completion-token-estimate:1024}") int completionTokenEstimate,
+                           MeterRegistry meterRegistry) {
+        this.requestsPerMinute = requestsPerMinute;
+        this.tokensPerMinute = tokensPerMinute;
+        this.completionTokenEstimate = completionTokenEstimate;
+        this.availableRequests = requestsPerMinute;
+        this.availableTokens = tokensPerMinute;
+        this.lastRefillNanos = System.nanoTime();
+        this.waitTimer = Timer.builder("ai.ratelimit.wait")
+                .description("Time spent waiting for Groq rate limit capacity")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Оценка токенов запроса: промпт по PromptBuilder.estimateTokens плюс ожидаемый ответ
+     */
+    public int estimateTokens(String prompt) {
+        return PromptBuilder.estimateTokens(prompt) + completionTokenEstimate;
+    }
+
+    /**
+     * Ожидание разрешения на запрос с заданной оценкой токенов
+     */
+    public void acquire(int estimatedTokens) {
+        long started = System.nanoTime();
+        double tokens = Math.min(estimatedTokens, tokensPerMinute);
+
+        queue.lock();
+        try {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    refill();
+                    waitNanos = nanosUntilAvailable(tokens);
+                    if (waitNanos <= 0) {
+                        availableRequests -= 1;
+                        availableTokens -= tokens;
+                        break;
+                    }
+                }
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Groq rate limit", e);
+        } finally {
+            queue.unlock();
+            waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Корректировка бакета по фактическому расходу токенов из поля usage
+     */
+    public synchronized void reconcile(int estimatedTokens, int actualTokens) {
+        if (actualTokens > 0) {
+            availableTokens += Math.min(estimatedTokens, tokensPerMinute) - actualTokens;
+        }
+    }
+
+    /**
+     * Уточнение остатков по заголовкам ответа Groq
+     */
+    public synchronized void updateFromHeaders(HttpHeaders headers) {
+        refill();
+
+        Double remainingRequests = parseNumber(headers.getFirst("x-ratelimit-remaining-requests"));
+        if (remainingRequests != null && remainingRequests < availableRequests) {
+            availableRequests = remainingRequests;
+        }
+        Double remainingTokens = parseNumber(headers.getFirst("x-ratelimit-remaining-tokens"));
+        if (remainingTokens != null && remainingTokens < availableTokens) {
+            availableTokens = remainingTokens;
+        }
+
+        if (remainingRequests != null && remainingRequests < 1) {
+            blockFor(parseDuration(headers.getFirst("x-ratelimit-reset-requests")));
+        }
+        if (remainingTokens != null && remainingTokens < 1) {
+            blockFor(parseDuration(headers.getFirst("x-ratelimit-reset-tokens")));
+        }
+    }
+
+    /**
+     * Приостановка всех запросов после ответа 429
+     */
+    public synchronized void blockFor(Duration duration) {
+        if (duration == null || duration.isNegative()) {
+            return;
+        }
+        long until = System.nanoTime() + duration.toNanos();
+        if (until - blockedUntilNanos > 0) {
+            blockedUntilNanos = until;
+            log.warn("Groq rate limit reached, pausing requests for {} ms", duration.toMillis());
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedMinutes = (now - lastRefillNanos) / 60_000_000_000.0;
+        lastRefillNanos = now;
+        availableRequests = Math.min(requestsPerMinute, availableRequests + elapsedMinutes * requestsPerMinute);
+        availableTokens = Math.min(tokensPerMinute, availableTokens + elapsedMinutes * tokensPerMinute);
+    }
+
+    private long nanosUntilAvailable(double tokens) {
+        long now = System.nanoTime();
+        long wait = Math.max(0, blockedUntilNanos - now);
+
+        if (availableRequests < 1) {
+            wait = Math.max(wait, (long) ((1 - availableRequests) / requestsPerMinute * 60_000_000_000.0));
+        }
+        if (availableTokens < tokens) {
+            wait = Math.max(wait, (long) ((tokens - availableTokens) / tokensPerMinute * 60_000_000_000.0));
+        }
+        return wait;
+    }
+
+    private Double parseNumber(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Разбор длительностей вида "2m59.56s", "7.66s", "250ms"
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Matcher matcher = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        if (!found) {
+            //Retry-After в секундах
+            try {
+                return Duration.ofMillis((long) (Double.parseDouble(value.trim()) * 1_000));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return Duration.ofMillis((long) millis);
+    }
+}
@@ -0,0 +1,29 @@
+package com.codegen.service;
+
+import io.github.resilience4j.core.IntervalBiFunction;
+import io.github.resilience4j.core.functions.Either;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Интервал между повторами groqApi: экспоненциальный рост со случайным разбросом,
+ * при наличии Retry-After ждем не меньше указанного сервером времени
+ */
+public class GroqRetryInterval implements IntervalBiFunction<Object> {
+
+    private static final long INITIAL_INTERVAL_MILLIS = 1_000;
+    private static final long MAX_INTERVAL_MILLIS = 30_000;
+
+    @Override
+    public Long apply(Integer attempt, Either<Throwable, Object> result) {
+        long exponential = Math.min(MAX_INTERVAL_MILLIS, INITIAL_INTERVAL_MILLIS << Math.min(attempt - 1, 16));
+        //равномерно от половины до полного интервала, чтобы повторы не шли волной
+        long interval = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+
+        if (result.isLeft() && result.getLeft() instanceof GroqApiException e && e.getRetryAfter() != null) {
+            long retryAfter = e.getRetryAfter().toMillis();
+            interval = Math.max(interval, retryAfter + ThreadLocalRandom.current().nextLong(250));
+        }
+        return interval;
+    }
+}
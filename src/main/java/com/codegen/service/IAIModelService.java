@@ -1,11 +1,15 @@
 package com.codegen.service;
 
+import java.util.function.Consumer;
+
 /**
  * Интерфейс для работы с AI моделью
  */
 public interface IAIModelService {
     String analyzeRequirements(String description, String language, String framework);
     String generateCode(String structuredModel, String language, String framework, String templateContent);
+    String generateCodeStreaming(String structuredModel, String language, String framework, String templateContent, Consumer<String> onChunk);
     String validateAndOptimize(String sourceCode, String language);
+    String validateAndOptimizeChunk(String chunk, String language, int part, int parts);
     String clarifyRequirements(String originalRequirement, String context);
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.codegen.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных запросов к AI модели
+ * Все вызывающие с одним ключом ждут один и тот же запрос
+ */
+@Component
+public class InFlightRequestCoalescer {
+
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public InFlightRequestCoalescer(MeterRegistry meterRegistry) {
+        Gauge.builder("ai.requests.inflight", inFlight, Map::size)
+                .description("Distinct AI requests currently in flight")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("ai.requests.coalesced")
+                .description("AI calls served by joining an identical in-flight request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Выполнение запроса или присоединение к уже выполняющемуся
+     * Ошибка передается всем ожидающим, следующий вызов выполняется заново
+     */
+    public String execute(String key, Supplier<String> call) {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, created);
+
+        if (existing != null) {
+            coalescedCounter.increment();
+            return await(existing);
+        }
+
+        try {
+            String result = call.get();
+            created.complete(result);
+            return result;
+        } catch (Throwable e) {
+            //и при Error: иначе ожидающие остались бы в join() навсегда
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
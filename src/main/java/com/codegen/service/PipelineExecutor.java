@@ -0,0 +1,145 @@
+package com.codegen.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Исполнитель конвейера обработки требований
+ * Виртуальные потоки, ограничение параллелизма и ограниченная очередь допуска
+ */
+@Component
+@Slf4j
+public class PipelineExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService subtaskExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter rejectedCounter;
+    private final RequirementTracer tracer;
+
+    public PipelineExecutor(@Value("${pipeline.max-concurrency:16}") int maxConcurrency,
+                            @Value("${pipeline.queue-capacity:100}") int queueCapacity,
+                            MeterRegistry meterRegistry,
+                            RequirementTracer tracer) {
+        this.tracer = tracer;
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrency,
+                maxConcurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("pipeline-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        Gauge.builder("pipeline.queue.depth", executor, e -> e.getQueue().size())
+                .description("Requirements waiting for a pipeline slot")
+                .register(meterRegistry);
+        Gauge.builder("pipeline.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Requirements currently being processed")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("pipeline.jobs.rejected")
+                .description("Requirements rejected because the admission queue was full")
+                .register(meterRegistry);
+
+        log.info("Pipeline executor started: max concurrency {}, queue capacity {}",
+                maxConcurrency, queueCapacity);
+    }
+
+    /**
+     * Постановка задачи в очередь конвейера
+     * @throws RejectedExecutionException если очередь заполнена
+     */
+    public void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Есть ли место в очереди допуска
+     */
+    public boolean hasCapacity() {
+        return executor.getQueue().remainingCapacity() > 0
+                || executor.getActiveCount() < executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Количество задач, которые можно начать без ожидания в очереди
+     */
+    public int freeSlots() {
+        return Math.max(0, executor.getMaximumPoolSize() - executor.getActiveCount() - executor.getQueue().size());
+    }
+
+    /**
+     * Параллельное выполнение подзадач одного требования
+     * Не более parallelism задач одновременно, результаты в порядке задач, контекст трассировки переносится в подзадачи
+     */
+    public <T> List<T> invokeAll(List<Callable<T>> tasks, int parallelism) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+
+        for (Callable<T> task : tasks) {
+            Callable<T> traced = tracer.wrap(task);
+            futures.add(subtaskExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return traced.call();
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for pipeline subtasks", e);
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        subtaskExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,281 @@
+package com.codegen.service;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.RequirementStatus;
+import com.codegen.model.RequirementTraceEvent;
+import com.codegen.model.TraceEventKind;
+import com.codegen.repository.RequirementRepository;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Метрики конвейера: длительность этапов и шагов, вызовы LLM, расход токенов,
+ * количество требований по статусам и время от запроса до готового кода
+ * Гистограммы для Prometheus включаются в management.metrics.distribution.*
+ * Этапы, шаги и вызовы LLM дополнительно попадают в трассировку требования (RequirementTracer)
+ */
+@Component
+@Slf4j
+public class PipelineMetrics {
+
+    public static final String SUCCESS = "success";
+    public static final String FAILURE = "failure";
+    public static final String DEFERRED = "deferred";
+    public static final String THROTTLED = "throttled";
+
+    private static final String RETRY_NAME = "groqApi";
+
+    private final MeterRegistry meterRegistry;
+    private final RequirementRepository requirementRepository;
+    private final RetryRegistry retryRegistry;
+    private final RequirementTracer tracer;
+
+    //обновляется по расписанию, чтобы опрос /actuator/prometheus не ходил в базу
+    private final Map<RequirementStatus, AtomicLong> statusCounts = new EnumMap<>(RequirementStatus.class);
+
+    public PipelineMetrics(MeterRegistry meterRegistry,
+                           RequirementRepository requirementRepository,
+                           RetryRegistry retryRegistry,
+                           RequirementTracer tracer) {
+        this.meterRegistry = meterRegistry;
+        this.requirementRepository = requirementRepository;
+        this.retryRegistry = retryRegistry;
+        this.tracer = tracer;
+
+        for (RequirementStatus status : RequirementStatus.values()) {
+            AtomicLong count = new AtomicLong();
+            statusCounts.put(status, count);
+            Gauge.builder("requirements.status", count, AtomicLong::get)
+                    .description("Requirements per status (the same value on every node)")
+                    .tag("status", status.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    public void registerRetryListener() {
+        retryRegistry.retry(RETRY_NAME).getEventPublisher()
+                .onRetry(event -> Counter.builder("ai.retries")
+                        .description("Repeated Groq API attempts")
+                        .tag("exception", event.getLastThrowable() != null
+                                ? event.getLastThrowable().getClass().getSimpleName()
+                                : "none")
+                        .register(meterRegistry)
+                        .increment());
+    }
+
+    @Scheduled(fixedDelayString = "${metrics.status-refresh-ms:15000}")
+    public void refreshStatusCounts() {
+        try {
+            Map<RequirementStatus, Long> counts = new EnumMap<>(RequirementStatus.class);
+            for (RequirementRepository.StatusCount row : requirementRepository.countStatuses()) {
+                counts.put(row.getStatus(), row.getCount());
+            }
+            statusCounts.forEach((status, gauge) -> gauge.set(counts.getOrDefault(status, 0L)));
+        } catch (Exception e) {
+            log.warn("Failed to refresh requirement status metrics: {}", e.getMessage());
+        }
+    }
+
+    public Span start() {
+        return new Span(LocalDateTime.now(), System.nanoTime());
+    }
+
+    /**
+     * Ожидание этапа в очереди задач, с момента когда задача стала доступна до аренды
+     */
+    public void recordQueueWait(JobStage stage, LocalDateTime availableAt, int attempt) {
+        if (availableAt == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Duration wait = Duration.between(availableAt, now);
+        if (wait.isNegative()) {
+            wait = Duration.ZERO;
+        }
+        Timer.builder("pipeline.queue.wait")
+                .description("Time a job stage waited in the queue before being claimed")
+                .tag("stage", stage.name().toLowerCase())
+                .register(meterRegistry)
+                .record(wait);
+
+        RequirementTraceEvent event = event(TraceEventKind.QUEUE, stage.name().toLowerCase(), availableAt, wait.toMillis(), null);
+        event.setAttempt(attempt);
+        tracer.record(event);
+    }
+
+    /**
+     * Один этап задачи конвейера
+     */
+    public void stopStage(Span span, JobStage stage, int attempt, String outcome) {
+        long nanos = span.elapsedNanos();
+        Timer.builder("pipeline.stage.duration")
+                .description("Pipeline stage execution time")
+                .tag("stage", stage.name().toLowerCase())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+
+        RequirementTraceEvent event = event(TraceEventKind.STAGE, stage.name().toLowerCase(),
+                span.startedAt(), TimeUnit.NANOSECONDS.toMillis(nanos), outcome);
+        event.setAttempt(attempt);
+        tracer.record(event);
+    }
+
+    /**
+     * Шаг внутри этапа: генерация по шаблону, валидация файла, сохранение
+     */
+    public <T> T timeStep(String step, Supplier<T> action) {
+        Span span = start();
+        String outcome = FAILURE;
+        try {
+            T result = action.get();
+            outcome = SUCCESS;
+            return result;
+        } finally {
+            long nanos = span.elapsedNanos();
+            Timer.builder("pipeline.step.duration")
+                    .description("Pipeline step execution time")
+                    .tag("step", step)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            tracer.record(event(TraceEventKind.STEP, step, span.startedAt(), TimeUnit.NANOSECONDS.toMillis(nanos), outcome));
+        }
+    }
+
+    /**
+     * Один HTTP-вызов LLM (каждая попытка retry отдельно) с расходом токенов из поля usage ответа
+     */
+    public void recordAiCall(AIOperation operation, String model, boolean streaming, Span span, String outcome,
+                             int bytesOut, int bytesIn, int promptTokens, int completionTokens) {
+        long nanos = span.elapsedNanos();
+        Timer.builder("ai.call.duration")
+                .description("LLM call latency")
+                .tag("operation", operation.name().toLowerCase())
+                .tag("model", String.valueOf(model))
+                .tag("streaming", String.valueOf(streaming))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (promptTokens > 0 || completionTokens > 0) {
+            tokenCounter(operation, model, "prompt").increment(promptTokens);
+            tokenCounter(operation, model, "completion").increment(completionTokens);
+        }
+
+        RequirementTraceEvent event = event(TraceEventKind.AI_CALL, operation.name().toLowerCase(),
+                span.startedAt(), TimeUnit.NANOSECONDS.toMillis(nanos), outcome);
+        event.setBytesOut(bytesOut);
+        event.setBytesIn(bytesIn);
+        event.setPromptTokens(promptTokens);
+        event.setCompletionTokens(completionTokens);
+        event.setCacheHit(false);
+        tracer.record(event);
+    }
+
+    /**
+     * Ответ LLM взят из кэша, в метриках уже учтен счетчиком ai.cache.hits
+     */
+    public void recordAiCacheHit(AIOperation operation, int bytesIn) {
+        RequirementTraceEvent event = event(TraceEventKind.AI_CALL, operation.name().toLowerCase(),
+                LocalDateTime.now(), 0, SUCCESS);
+        event.setBytesIn(bytesIn);
+        event.setCacheHit(true);
+        tracer.record(event);
+    }
+
+    /**
+     * Токены, сэкономленные при построении одного промпта, по способу сокращения
+     */
+    public void recordPromptSavings(AIOperation operation, String technique, int savedTokens) {
+        DistributionSummary.builder("ai.prompt.tokens.saved")
+                .description("Estimated prompt tokens saved per call")
+                .baseUnit("tokens")
+                .tag("operation", operation.name().toLowerCase())
+                .tag("technique", technique)
+                .register(meterRegistry)
+                .record(Math.max(0, savedTokens));
+    }
+
+    /**
+     * Промпт не поместился в бюджет токенов и был урезан или разбит на части
+     */
+    public void recordPromptOverBudget(AIOperation operation) {
+        Counter.builder("ai.prompt.over.budget")
+                .description("Prompts that exceeded the input token budget")
+                .tag("operation", operation.name().toLowerCase())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Время от создания требования до сохранения сгенерированного кода
+     */
+    public void recordTimeToCode(LocalDateTime createdAt) {
+        record("requirement.time.to.code", "Time from request to generated code", createdAt, null);
+    }
+
+    /**
+     * Время от создания требования до завершения обработки
+     */
+    public void recordCompletion(LocalDateTime createdAt, String outcome) {
+        record("requirement.duration", "Time from request to final status", createdAt, outcome);
+    }
+
+    private void record(String name, String description, LocalDateTime createdAt, String outcome) {
+        if (createdAt == null) {
+            return;
+        }
+        Timer.Builder builder = Timer.builder(name).description(description);
+        if (outcome != null) {
+            builder.tag("outcome", outcome);
+        }
+        builder.register(meterRegistry).record(Duration.between(createdAt, LocalDateTime.now()));
+    }
+
+    private RequirementTraceEvent event(TraceEventKind kind, String name, LocalDateTime startedAt,
+                                        long durationMs, String outcome) {
+        RequirementTraceEvent event = new RequirementTraceEvent();
+        event.setKind(kind);
+        event.setName(name);
+        event.setStartedAt(startedAt);
+        event.setDurationMs(durationMs);
+        event.setOutcome(outcome);
+        return event;
+    }
+
+    private Counter tokenCounter(AIOperation operation, String model, String type) {
+        return Counter.builder("ai.tokens")
+                .description("LLM tokens reported in usage")
+                .baseUnit("tokens")
+                .tag("operation", operation.name().toLowerCase())
+                .tag("model", String.valueOf(model))
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Начало измеряемого интервала
+     */
+    public record Span(LocalDateTime startedAt, long startNanos) {
+        long elapsedNanos() {
+            return System.nanoTime() - startNanos;
+        }
+    }
+}
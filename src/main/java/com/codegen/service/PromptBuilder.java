@@ -0,0 +1,314 @@
+package com.codegen.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Построение промптов генерации и валидации с учетом бюджета токенов
+ * Модель требований минифицируется (без пробелов, пустых и служебных полей), из шаблонов убирается
+ * общий для набора заголовок (package/import), файлы больше бюджета валидируются по частям.
+ * Сэкономленные токены пишутся в ai.prompt.tokens.saved по операции и способу
+ */
+@Component
+@Slf4j
+public class PromptBuilder {
+
+    static final String BOILERPLATE_PLACEHOLDER = "[standard package/import header omitted]";
+
+    private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
+    private final int maxInputTokens;
+    private final int validationChunkTokens;
+    private final Set<String> modelDropFields;
+
+    public PromptBuilder(ObjectMapper objectMapper,
+                         PipelineMetrics metrics,
+                         @Value("${ai.prompt.max-input-tokens:6000}") int maxInputTokens,
+                         @Value("${ai.prompt.validation-chunk-tokens:3000}") int validationChunkTokens,
+                         @Value("${ai.prompt.model-drop-fields:explanation,notes,comments,reasoning,assumptions}")
+                         Set<String> modelDropFields) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.maxInputTokens = maxInputTokens;
+        this.validationChunkTokens = validationChunkTokens;
+        this.modelDropFields = modelDropFields;
+    }
+
+    /**
+     * Оценка числа токенов текста (~4 символа на токен)
+     * Единая для бюджета промптов и для GroqRateLimiter
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    /**
+     * Промпт генерации: минифицированная модель и шаблон, урезанный до бюджета если не помещается
+     */
+    public String generationPrompt(String structuredModel, String language, String framework, String templateContent) {
+        String model = minifyModel(structuredModel);
+        metrics.recordPromptSavings(AIOperation.GENERATE, "model-minify",
+                estimateTokens(structuredModel) - estimateTokens(model));
+
+        String template = templateContent;
+        int fixedTokens = estimateTokens(model) + estimateTokens(language) + estimateTokens(framework) + 32;
+        if (fixedTokens + estimateTokens(template) > maxInputTokens) {
+            //модель важнее примера шаблона, урезаем шаблон по границе строки
+            template = truncateLines(template, Math.max(0, maxInputTokens - fixedTokens));
+            metrics.recordPromptOverBudget(AIOperation.GENERATE);
+            log.warn("Generation prompt is over the {} token budget, template truncated from {} to {} tokens",
+                    maxInputTokens, estimateTokens(templateContent), estimateTokens(template));
+        }
+
+        return "Generate code based on model: " + model +
+                ". Language: " + language + ", Framework: " + framework +
+                ". Use template: " + template + ". Output only code.";
+    }
+
+    /**
+     * Промпт валидации файла целиком
+     */
+    public String validationPrompt(String sourceCode, String language) {
+        String source = stripTrailingWhitespace(sourceCode);
+        metrics.recordPromptSavings(AIOperation.VALIDATE, "whitespace",
+                estimateTokens(sourceCode) - estimateTokens(source));
+
+        return "Validate and optimize code: " + source +
+                ". Language: " + language +
+                ". Output JSON with hasErrors, errors[], suggestions[], qualityScore.";
+    }
+
+    /**
+     * Промпт валидации части файла, номера строк в ответе - от начала части
+     */
+    public String validationChunkPrompt(String chunk, String language, int part, int parts) {
+        return "Validate and optimize code (part " + part + " of " + parts + " of one file; " +
+                "line 1 is the first line of this part, references to code outside it may be valid): " +
+                stripTrailingWhitespace(chunk) +
+                ". Language: " + language +
+                ". Output JSON with hasErrors, hasSyntaxErrors, errors[] with line, suggestions[], qualityScore.";
+    }
+
+    /**
+     * Разбиение исходника на части не больше validation-chunk-tokens по границам строк
+     * Файл в пределах бюджета возвращается одной частью
+     */
+    public List<SourceChunk> splitForValidation(String sourceCode) {
+        if (estimateTokens(sourceCode) <= validationChunkTokens) {
+            return List.of(new SourceChunk(sourceCode, 1, countLines(sourceCode)));
+        }
+
+        List<SourceChunk> chunks = new ArrayList<>();
+        String[] lines = sourceCode.split("\r\n|\r|\n", -1);
+        int maxChars = validationChunkTokens * 4;
+        StringBuilder current = new StringBuilder();
+        int firstLine = 1;
+        int lineCount = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (lineCount > 0 && current.length() + lines[i].length() + 1 > maxChars) {
+                chunks.add(new SourceChunk(current.toString(), firstLine, lineCount));
+                current.setLength(0);
+                firstLine = i + 1;
+                lineCount = 0;
+            }
+            current.append(lines[i]).append('\n');
+            lineCount++;
+        }
+        if (lineCount > 0) {
+            chunks.add(new SourceChunk(current.toString(), firstLine, lineCount));
+        }
+        log.debug("Source of {} tokens split into {} validation chunks", estimateTokens(sourceCode), chunks.size());
+        return chunks;
+    }
+
+    /**
+     * Удаление заголовка (package/import), общего для всех шаблонов набора, и повторов внутри заголовка
+     * Модель все равно генерирует собственные импорты, повторять их в каждом запросе незачем
+     */
+    public List<String> compactTemplates(List<String> templateContents) {
+        Set<String> shared = templateContents.size() > 1 ? sharedHeaderLines(templateContents) : Set.of();
+
+        List<String> compacted = new ArrayList<>(templateContents.size());
+        for (String content : templateContents) {
+            String compact = compactTemplate(content, shared);
+            metrics.recordPromptSavings(AIOperation.GENERATE, "boilerplate",
+                    estimateTokens(content) - estimateTokens(compact));
+            compacted.add(compact);
+        }
+        return compacted;
+    }
+
+    /**
+     * JSON модели без пробелов, null, пустых значений и служебных полей
+     * Если модель не разбирается как JSON - только схлопывание пробелов
+     */
+    String minifyModel(String structuredModel) {
+        if (structuredModel == null) {
+            return "";
+        }
+        int start = structuredModel.indexOf('{');
+        int end = structuredModel.lastIndexOf('}');
+        if (start >= 0 && end > start) {
+            try {
+                JsonNode model = objectMapper.readTree(structuredModel.substring(start, end + 1));
+                prune(model, true);
+                return objectMapper.writeValueAsString(model);
+            } catch (Exception e) {
+                log.debug("Structured model is not valid JSON, collapsing whitespace only: {}", e.getMessage());
+            }
+        }
+        return structuredModel.strip().replaceAll("\\s+", " ");
+    }
+
+    //служебные поля анализатора есть только на верхнем уровне модели, вложенные одноименные поля
+    //(например поле сущности notes) - часть требований и сохраняются
+    private void prune(JsonNode node, boolean topLevel) {
+        if (node instanceof ObjectNode object) {
+            Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                prune(field.getValue(), false);
+                if ((topLevel && modelDropFields.contains(field.getKey())) || isEmpty(field.getValue())) {
+                    fields.remove();
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            Iterator<JsonNode> elements = array.elements();
+            while (elements.hasNext()) {
+                JsonNode element = elements.next();
+                prune(element, false);
+                if (isEmpty(element)) {
+                    elements.remove();
+                }
+            }
+        }
+    }
+
+    private boolean isEmpty(JsonNode node) {
+        return node.isNull()
+                || (node.isTextual() && node.asText().isBlank())
+                || (node.isContainerNode() && node.isEmpty());
+    }
+
+    private Set<String> sharedHeaderLines(List<String> templateContents) {
+        Set<String> shared = null;
+        for (String content : templateContents) {
+            Set<String> header = new HashSet<>(headerLines(content));
+            if (shared == null) {
+                shared = header;
+            } else {
+                shared.retainAll(header);
+            }
+        }
+        return shared;
+    }
+
+    private String compactTemplate(String content, Set<String> shared) {
+        if (content == null) {
+            return "";
+        }
+        String[] lines = content.split("\r\n|\r|\n", -1);
+        Set<String> seenHeader = new LinkedHashSet<>();
+        StringBuilder result = new StringBuilder(content.length());
+        boolean inHeader = true;
+        boolean omitted = false;
+        boolean previousBlank = false;
+        for (String line : lines) {
+            String trimmed = line.strip();
+            if (inHeader && trimmed.isEmpty()) {
+                continue;
+            }
+            if (inHeader && isHeaderLine(trimmed)) {
+                if (shared.contains(trimmed)) {
+                    omitted = true;
+                } else if (seenHeader.add(trimmed)) {
+                    result.append(trimmed).append('\n');
+                }
+                continue;
+            }
+            if (inHeader) {
+                inHeader = false;
+                if (omitted) {
+                    result.insert(0, BOILERPLATE_PLACEHOLDER + "\n");
+                }
+            }
+            //подряд идущие пустые строки схлопываются в одну
+            boolean blank = trimmed.isEmpty();
+            if (!(blank && previousBlank)) {
+                result.append(line.stripTrailing()).append('\n');
+            }
+            previousBlank = blank;
+        }
+        if (inHeader && omitted) {
+            result.insert(0, BOILERPLATE_PLACEHOLDER + "\n");
+        }
+        return result.toString().stripTrailing();
+    }
+
+    private List<String> headerLines(String content) {
+        List<String> header = new ArrayList<>();
+        if (content == null) {
+            return header;
+        }
+        for (String line : content.split("\r\n|\r|\n")) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!isHeaderLine(trimmed)) {
+                break;
+            }
+            header.add(trimmed);
+        }
+        return header;
+    }
+
+    //package и импорты Java/Kotlin/TypeScript/Python
+    private boolean isHeaderLine(String trimmed) {
+        return trimmed.startsWith("package ")
+                || trimmed.startsWith("import ")
+                || trimmed.startsWith("from ")
+                || trimmed.startsWith("using ")
+                || (trimmed.startsWith("const ") && trimmed.contains("require("));
+    }
+
+    private String truncateLines(String text, int maxTokens) {
+        int maxChars = maxTokens * 4;
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        //если в бюджет не помещается даже первая строка, шаблон опускается целиком
+        int cut = text.lastIndexOf('\n', maxChars);
+        return (cut > 0 ? text.substring(0, cut) + "\n" : "") + "// ... template truncated";
+    }
+
+    private String stripTrailingWhitespace(String source) {
+        if (source == null) {
+            return "";
+        }
+        return source.replaceAll("[ \\t]+(?=\\r?\\n|$)", "");
+    }
+
+    private int countLines(String source) {
+        return source == null || source.isEmpty() ? 0 : source.split("\r\n|\r|\n", -1).length;
+    }
+
+    /**
+     * Часть исходника для валидации: текст, номер первой строки в файле и число строк
+     */
+    public record SourceChunk(String code, int firstLine, int lineCount) {
+    }
+}
@@ -3,6 +3,8 @@ package com.codegen.service;
 import com.codegen.model.Requirement;
 import com.codegen.model.RequirementStatus;
 import com.codegen.repository.RequirementRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -18,15 +20,16 @@ public class RequirementAnalysisService {
 
     private final AIModelService aiModelService;
     private final RequirementRepository requirementRepository;
+    private final RequirementStatusService statusService;
     private final ObjectMapper objectMapper;
+    private final PipelineMetrics metrics;
 
     /**
      * Анализ и структурирование требований
      */
     public Requirement analyzeRequirement(Requirement requirement) {
         try {
-            requirement.setStatus(RequirementStatus.ANALYZING);
-            requirement = requirementRepository.save(requirement);
+            requirement = statusService.updateStatus(requirement, RequirementStatus.ANALYZING);
 
             //AI для анализа
             String structuredModel = aiModelService.analyzeRequirements(
@@ -35,16 +38,19 @@ public class RequirementAnalysisService {
                     requirement.getFramework()
             );
 
+            //статус остается ANALYZING до начала генерации, чтобы клиент не принял анализ за завершение
             requirement.setStructuredModel(structuredModel);
-            requirement.setStatus(RequirementStatus.COMPLETED);
 
             log.info("Requirement {} analyzed successfully", requirement.getId());
-            return requirementRepository.save(requirement);
+            Requirement analyzed = requirement;
+            return metrics.timeStep("persist.analysis", () -> requirementRepository.save(analyzed));
 
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            //AI недоступен - решение об отложенной обработке принимает конвейер
+            throw e;
         } catch (Exception e) {
             log.error("Error analyzing requirement {}: ", requirement.getId(), e);
-            requirement.setStatus(RequirementStatus.FAILED);
-            requirementRepository.save(requirement);
+            statusService.updateStatus(requirement, RequirementStatus.FAILED);
             throw new RuntimeException("Failed to analyze requirement: " + e.getMessage());
         }
     }
@@ -0,0 +1,178 @@
+package com.codegen.service;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.JobStatus;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementJob;
+import com.codegen.repository.BulkInsertRepository;
+import com.codegen.repository.RequirementJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Постоянная очередь задач обработки требований в PostgreSQL
+ * Аренда задач через SELECT ... FOR UPDATE SKIP LOCKED, продление аренды пульсом,
+ * после каждого этапа задача возвращается в общую очередь и доступна любому узлу
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RequirementJobService {
+
+    //интерактивные запросы обгоняют пакетные
+    public static final int INTERACTIVE_PRIORITY = 10;
+    public static final int BATCH_PRIORITY = 0;
+
+    private final RequirementJobRepository jobRepository;
+    private final BulkInsertRepository bulkInsertRepository;
+
+    @Value("${pipeline.lease-duration-ms:60000}")
+    private long leaseDurationMillis;
+
+    @Value("${pipeline.claim-overfetch:4}")
+    private int claimOverfetch;
+
+    /**
+     * Постановка требования в очередь
+     */
+    @Transactional
+    public RequirementJob enqueue(Requirement requirement, int priority) {
+        RequirementJob job = new RequirementJob();
+        job.setRequirementId(requirement.getId());
+        job.setUserId(requirement.getUser() != null ? requirement.getUser().getId() : null);
+        job.setPriority(priority);
+        job.setStage(JobStage.ANALYZE);
+        job.setStatus(JobStatus.QUEUED);
+        return jobRepository.save(job);
+    }
+
+    /**
+     * Пакетная постановка требований одного пользователя в очередь
+     */
+    @Transactional
+    public void enqueueAll(List<Long> requirementIds, Long userId, int priority) {
+        bulkInsertRepository.insertJobs(requirementIds, userId, priority);
+    }
+
+    /**
+     * Аренда до limit задач этапа stage обработчиком owner
+     * Сначала по приоритету, внутри приоритета - по очереди между пользователями.
+     * Кандидатов выбирается в claim-overfetch раз больше: первые из них могут быть заблокированы узлами,
+     * которые опрашивают очередь одновременно, тогда блокируются следующие по порядку
+     */
+    @Transactional
+    public List<RequirementJob> claim(String owner, JobStage stage, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> candidates = jobRepository.findClaimableIds(stage.name(), now, limit * claimOverfetch);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        //блокируются только недостающие задачи по порядку кандидатов: лишние блокировки отняли бы задачи у других узлов
+        List<RequirementJob> jobs = new ArrayList<>();
+        int next = 0;
+        while (jobs.size() < limit && next < candidates.size()) {
+            List<Long> chunk = candidates.subList(next, Math.min(candidates.size(), next + limit - jobs.size()));
+            next += chunk.size();
+            Map<Long, RequirementJob> locked = jobRepository.lockClaimable(chunk, stage.name(), now).stream()
+                    .collect(Collectors.toMap(RequirementJob::getId, Function.identity()));
+            chunk.stream().map(locked::get).filter(Objects::nonNull).forEach(jobs::add);
+        }
+        for (RequirementJob job : jobs) {
+            if (job.getStatus() == JobStatus.RUNNING) {
+                log.warn("Lease of job {} held by {} expired, reclaiming", job.getId(), job.getLeaseOwner());
+            }
+            job.setStatus(JobStatus.RUNNING);
+            job.setLeaseOwner(owner);
+            job.setLeaseExpiresAt(now.plus(Duration.ofMillis(leaseDurationMillis)));
+            job.setHeartbeatAt(now);
+            job.setAttempts(job.getAttempts() + 1);
+        }
+        return jobs;
+    }
+
+    /**
+     * Продление аренды выполняющихся задач
+     */
+    @Transactional
+    public void heartbeat(Collection<Long> jobIds, String owner) {
+        if (jobIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jobRepository.extendLeases(jobIds, owner, JobStatus.RUNNING,
+                now.plus(Duration.ofMillis(leaseDurationMillis)), now);
+    }
+
+    /**
+     * Сохранение контрольной точки: задача возвращается в очередь на следующем этапе
+     * @return false если аренда потеряна и задачу обрабатывает другой обработчик
+     */
+    @Transactional
+    public boolean advance(RequirementJob job, JobStage nextStage) {
+        int updated = jobRepository.advanceStage(job.getId(), job.getLeaseOwner(), JobStatus.RUNNING,
+                JobStatus.QUEUED, nextStage, LocalDateTime.now());
+        if (updated == 0) {
+            log.warn("Lost lease on job {}, stopping at stage {}", job.getId(), job.getStage());
+            return false;
+        }
+        job.setStage(nextStage);
+        return true;
+    }
+
+    @Transactional
+    public void complete(RequirementJob job) {
+        finish(job, JobStatus.COMPLETED, null);
+    }
+
+    @Transactional
+    public void fail(RequirementJob job, String error) {
+        finish(job, JobStatus.FAILED, error);
+    }
+
+    /**
+     * Возврат задачи в очередь без учета попытки (AI временно недоступен)
+     */
+    @Transactional
+    public void defer(RequirementJob job, Duration delay) {
+        jobRepository.findById(job.getId())
+                .filter(current -> job.getLeaseOwner().equals(current.getLeaseOwner()))
+                .ifPresent(current -> {
+                    current.setStatus(JobStatus.QUEUED);
+                    current.setLeaseOwner(null);
+                    current.setLeaseExpiresAt(null);
+                    current.setAttempts(Math.max(0, current.getAttempts() - 1));
+                    current.setAvailableAt(LocalDateTime.now().plus(delay));
+                });
+    }
+
+    public long countQueued() {
+        return jobRepository.countByStatus(JobStatus.QUEUED);
+    }
+
+    private void finish(RequirementJob job, JobStatus status, String error) {
+        jobRepository.findById(job.getId())
+                .filter(current -> job.getLeaseOwner().equals(current.getLeaseOwner()))
+                .ifPresent(current -> {
+                    current.setStatus(status);
+                    current.setLeaseExpiresAt(null);
+                    current.setLastError(error != null && error.length() > 2000 ? error.substring(0, 2000) : error);
+                });
+    }
+}
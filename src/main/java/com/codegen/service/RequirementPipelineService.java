@@ -0,0 +1,326 @@
+package com.codegen.service;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementJob;
+import com.codegen.model.RequirementStatus;
+import com.codegen.repository.GeneratedCodeRepository;
+import com.codegen.repository.RequirementRepository;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Конвейер обработки требования: анализ, генерация, валидация
+ * Требования проходят через общую для всех узлов очередь задач (requirement_jobs): узел арендует задачи,
+ * продлевает аренду пульсом и после каждого этапа возвращает задачу в очередь на следующем этапе.
+ * Следующий этап может выполнить любой узел, после перезапуска задача продолжается с незавершенного этапа
+ */
+@Service
+@Slf4j
+public class RequirementPipelineService {
+
+    private static final List<AIOperation> PIPELINE_OPERATIONS =
+            List.of(AIOperation.ANALYZE, AIOperation.GENERATE, AIOperation.VALIDATE);
+
+    //этапы ближе к завершению забираются первыми
+    private static final List<JobStage> CLAIM_ORDER =
+            List.of(JobStage.VALIDATE, JobStage.GENERATE, JobStage.ANALYZE);
+
+    private static final List<RequirementStatus> UNFINISHED_STATUSES = List.of(
+            RequirementStatus.PENDING, RequirementStatus.ANALYZING,
+            RequirementStatus.GENERATING, RequirementStatus.VALIDATING);
+
+    private final RequirementAnalysisService analysisService;
+    private final CodeGenerationService generationService;
+    private final CodeValidationService validationService;
+    private final RequirementRepository requirementRepository;
+    private final GeneratedCodeRepository codeRepository;
+    private final RequirementStatusService statusService;
+    private final RequirementJobService jobService;
+    private final PipelineExecutor pipelineExecutor;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final PipelineMetrics metrics;
+    private final RequirementTracer tracer;
+
+    private final String workerId;
+    private final int backlogCapacity;
+    private final int maxAttempts;
+    private final Duration deferralDelay;
+    private final int claimBatchSize;
+    private final Map<JobStage, Integer> stageConcurrency;
+
+    //задачи, арендованные этим обработчиком
+    private final Map<Long, RequirementJob> running = new ConcurrentHashMap<>();
+    private final ReentrantLock pollLock = new ReentrantLock();
+
+    public RequirementPipelineService(RequirementAnalysisService analysisService,
+                                      CodeGenerationService generationService,
+                                      CodeValidationService validationService,
+                                      RequirementRepository requirementRepository,
+                                      GeneratedCodeRepository codeRepository,
+                                      RequirementStatusService statusService,
+                                      RequirementJobService jobService,
+                                      PipelineExecutor pipelineExecutor,
+                                      CircuitBreakerRegistry circuitBreakerRegistry,
+                                      PipelineMetrics metrics,
+                                      RequirementTracer tracer,
+                                      @Value("${pipeline.worker-id:}") String workerId,
+                                      @Value("${pipeline.backlog-capacity:100}") int backlogCapacity,
+                                      @Value("${pipeline.max-attempts:3}") int maxAttempts,
+                                      @Value("${pipeline.deferral-delay-ms:30000}") long deferralDelayMillis,
+                                      @Value("${pipeline.claim-batch-size:4}") int claimBatchSize,
+                                      @Value("${pipeline.stage-concurrency.analyze:8}") int analyzeConcurrency,
+                                      @Value("${pipeline.stage-concurrency.generate:4}") int generateConcurrency,
+                                      @Value("${pipeline.stage-concurrency.validate:8}") int validateConcurrency) {
+        this.analysisService = analysisService;
+        this.generationService = generationService;
+        this.validationService = validationService;
+        this.requirementRepository = requirementRepository;
+        this.codeRepository = codeRepository;
+        this.statusService = statusService;
+        this.jobService = jobService;
+        this.pipelineExecutor = pipelineExecutor;
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.workerId = workerId.isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8)
+                : workerId;
+        this.backlogCapacity = backlogCapacity;
+        this.maxAttempts = maxAttempts;
+        this.deferralDelay = Duration.ofMillis(deferralDelayMillis);
+        this.claimBatchSize = claimBatchSize;
+        this.stageConcurrency = Map.of(
+                JobStage.ANALYZE, analyzeConcurrency,
+                JobStage.GENERATE, generateConcurrency,
+                JobStage.VALIDATE, validateConcurrency);
+    }
+
+    @PostConstruct
+    public void registerBreakerListeners() {
+        for (AIOperation operation : PIPELINE_OPERATIONS) {
+            circuitBreakerRegistry.circuitBreaker(operation.getResilienceName())
+                    .getEventPublisher()
+                    .onStateTransition(event -> {
+                        if (event.getStateTransition().getToState() == CircuitBreaker.State.CLOSED) {
+                            log.info("Circuit {} closed, polling queued requirements", event.getCircuitBreakerName());
+                            Thread.ofVirtual().start(this::poll);
+                        }
+                    });
+        }
+        log.info("Pipeline worker id: {}", workerId);
+    }
+
+    /**
+     * Постановка в очередь требований, созданных до появления очереди задач
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void enqueueOrphaned() {
+        for (Requirement requirement : requirementRepository.findWithoutJob(UNFINISHED_STATUSES)) {
+            try {
+                jobService.enqueue(requirement, RequirementJobService.BATCH_PRIORITY);
+                log.info("Enqueued unfinished requirement {}", requirement.getId());
+            } catch (DataIntegrityViolationException e) {
+                //задачу уже создал другой узел
+            }
+        }
+    }
+
+    /**
+     * Доступны ли все операции AI, нужные конвейеру
+     */
+    public boolean isAIAvailable() {
+        return PIPELINE_OPERATIONS.stream()
+                .map(operation -> circuitBreakerRegistry.circuitBreaker(operation.getResilienceName()).getState())
+                .noneMatch(state -> state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN);
+    }
+
+    /**
+     * Есть ли место в постоянной очереди задач (pipeline.backlog-capacity)
+     */
+    public boolean hasCapacity() {
+        return jobService.countQueued() < backlogCapacity;
+    }
+
+    /**
+     * Есть ли место в очереди задач для count новых требований
+     */
+    public boolean hasCapacity(int count) {
+        return jobService.countQueued() + count <= backlogCapacity;
+    }
+
+    /**
+     * Постановка требования в постоянную очередь
+     */
+    public void accept(Requirement requirement) {
+        jobService.enqueue(requirement, RequirementJobService.INTERACTIVE_PRIORITY);
+        wakeUp();
+    }
+
+    /**
+     * Внеочередной опрос очереди после появления новых задач
+     */
+    public void wakeUp() {
+        if (isAIAvailable()) {
+            Thread.ofVirtual().start(this::poll);
+        }
+    }
+
+    /**
+     * Аренда задач из общей очереди с учетом лимитов узла
+     * За один опрос узел берет не больше claim-batch-size задач, остальные достаются другим узлам
+     */
+    @Scheduled(fixedDelayString = "${pipeline.poll-interval-ms:1000}")
+    public void poll() {
+        if (!isAIAvailable()) {
+            return;
+        }
+
+        pollLock.lock();
+        try {
+            int budget = Math.min(pipelineExecutor.freeSlots(), claimBatchSize);
+            for (JobStage stage : CLAIM_ORDER) {
+                int limit = Math.min(budget, stageConcurrency.get(stage) - runningCount(stage));
+                for (RequirementJob job : jobService.claim(workerId, stage, limit)) {
+                    budget--;
+                    dispatch(job);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to poll requirement jobs: ", e);
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /**
+     * Продление аренды выполняющихся задач
+     */
+    @Scheduled(fixedDelayString = "${pipeline.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        try {
+            jobService.heartbeat(running.keySet(), workerId);
+        } catch (Exception e) {
+            log.error("Failed to extend job leases: ", e);
+        }
+    }
+
+    private void dispatch(RequirementJob job) {
+        running.put(job.getId(), job);
+        try {
+            pipelineExecutor.submit(() -> {
+                try (RequirementTracer.Scope scope = tracer.open(job.getRequirementId())) {
+                    process(job);
+                } finally {
+                    running.remove(job.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.remove(job.getId());
+            jobService.defer(job, Duration.ZERO);
+        }
+    }
+
+    private int runningCount(JobStage stage) {
+        return (int) running.values().stream().filter(job -> job.getStage() == stage).count();
+    }
+
+    /**
+     * Выполнение одного этапа задачи
+     */
+    private void process(RequirementJob job) {
+        Long requirementId = job.getRequirementId();
+        JobStage stage = job.getStage();
+        metrics.recordQueueWait(stage, job.getAvailableAt(), job.getAttempts());
+        PipelineMetrics.Span span = metrics.start();
+        Requirement requirement = null;
+        try {
+            requirement = requirementRepository.findById(requirementId).orElse(null);
+            if (requirement == null || requirement.getStatus() == RequirementStatus.COMPLETED) {
+                jobService.complete(job);
+                return;
+            }
+            if (job.getAttempts() > maxAttempts) {
+                log.error("Requirement {} exceeded {} attempts at stage {}, giving up",
+                        requirementId, maxAttempts, job.getStage());
+                jobService.fail(job, "Exceeded max attempts");
+                statusService.updateStatus(requirementId, RequirementStatus.FAILED);
+                metrics.recordCompletion(requirement.getCreatedAt(), PipelineMetrics.FAILURE);
+                return;
+            }
+
+            log.info("Processing stage {} of requirement {} on {} (attempt {})",
+                    job.getStage(), requirementId, workerId, job.getAttempts());
+
+            switch (job.getStage()) {
+                case ANALYZE -> {
+                    //анализ требований, пропускается если модель уже построена
+                    if (requirement.getStructuredModel() == null) {
+                        analysisService.analyzeRequirement(requirement);
+                        log.info("Analysis completed for requirement {}", requirementId);
+                    }
+                    advance(job, JobStage.GENERATE);
+                }
+                case GENERATE -> {
+                    //генерация кода, пропускается если код уже сохранен
+                    if (!codeRepository.existsByRequirementId(requirementId)) {
+                        int generated = generationService.generateCode(requirement).size();
+                        log.info("Generated {} code files for requirement {}", generated, requirementId);
+                        metrics.recordTimeToCode(requirement.getCreatedAt());
+                    } else {
+                        statusService.updateStatus(requirement, RequirementStatus.VALIDATING);
+                    }
+                    advance(job, JobStage.VALIDATE);
+                }
+                case VALIDATE -> {
+                    validationService.validateRequirementCodes(requirement);
+                    jobService.complete(job);
+                    metrics.recordCompletion(requirement.getCreatedAt(), PipelineMetrics.SUCCESS);
+                    log.info("Successfully processed requirement: {}", requirementId);
+                }
+            }
+            metrics.stopStage(span, stage, job.getAttempts(), PipelineMetrics.SUCCESS);
+
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            log.warn("AI is unavailable, requirement {} is deferred: {}", requirementId, e.getMessage());
+            jobService.defer(job, deferralDelay);
+            statusService.updateStatus(requirementId, RequirementStatus.PENDING);
+            metrics.stopStage(span, stage, job.getAttempts(), PipelineMetrics.DEFERRED);
+
+        } catch (Exception e) {
+            log.error("Error in code generation pipeline for requirement {}: ", requirementId, e);
+
+            jobService.fail(job, e.getMessage());
+            statusService.updateStatus(requirementId, RequirementStatus.FAILED);
+            metrics.stopStage(span, stage, job.getAttempts(), PipelineMetrics.FAILURE);
+            if (requirement != null) {
+                metrics.recordCompletion(requirement.getCreatedAt(), PipelineMetrics.FAILURE);
+            }
+        }
+    }
+
+    private void advance(RequirementJob job, JobStage nextStage) {
+        if (jobService.advance(job, nextStage)) {
+            wakeUp();
+        }
+    }
+}
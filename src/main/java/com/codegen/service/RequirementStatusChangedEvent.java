@@ -0,0 +1,15 @@
+package com.codegen.service;
+
+import com.codegen.model.RequirementStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие смены статуса требования
+ */
+public record RequirementStatusChangedEvent(Long requirementId, RequirementStatus status, LocalDateTime changedAt) {
+
+    public boolean isTerminal() {
+        return status == RequirementStatus.COMPLETED || status == RequirementStatus.FAILED;
+    }
+}
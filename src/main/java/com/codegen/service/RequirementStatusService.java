@@ -0,0 +1,33 @@
+package com.codegen.service;
+
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementStatus;
+import com.codegen.repository.RequirementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Смена статуса требования с публикацией события для подписчиков
+ */
+@Service
+@RequiredArgsConstructor
+public class RequirementStatusService {
+
+    private final RequirementRepository requirementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Requirement updateStatus(Requirement requirement, RequirementStatus status) {
+        requirement.setStatus(status);
+        Requirement saved = requirementRepository.save(requirement);
+        eventPublisher.publishEvent(new RequirementStatusChangedEvent(saved.getId(), status, LocalDateTime.now()));
+        return saved;
+    }
+
+    public void updateStatus(Long requirementId, RequirementStatus status) {
+        requirementRepository.findById(requirementId)
+                .ifPresent(requirement -> updateStatus(requirement, status));
+    }
+}
@@ -0,0 +1,132 @@
+package com.codegen.service;
+
+import com.codegen.dto.RequirementTraceDTO;
+import com.codegen.dto.StageLatencyDTO;
+import com.codegen.dto.TraceEventDTO;
+import com.codegen.model.RequirementTraceEvent;
+import com.codegen.model.TraceEventKind;
+import com.codegen.repository.RequirementRepository;
+import com.codegen.repository.RequirementTraceEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Чтение трассировки: события одного требования и перцентили задержек за окно времени
+ */
+@Service
+@RequiredArgsConstructor
+public class RequirementTraceService {
+
+    private final RequirementTraceEventRepository eventRepository;
+    private final RequirementRepository requirementRepository;
+
+    @Transactional(readOnly = true)
+    public RequirementTraceDTO getTrace(Long requirementId) {
+        RequirementRepository.RequirementView requirement = requirementRepository.findViewById(requirementId)
+                .orElseThrow(() -> new IllegalArgumentException("Requirement not found"));
+        List<RequirementTraceEvent> events = eventRepository.findByRequirementIdOrderByStartedAtAscIdAsc(requirementId);
+
+        RequirementTraceDTO dto = new RequirementTraceDTO();
+        dto.setRequirementId(requirementId);
+        dto.setStatus(requirement.getStatus().name());
+        dto.setCreatedAt(requirement.getCreatedAt());
+
+        LocalDateTime lastEnd = events.stream()
+                .map(e -> e.getStartedAt().plus(Duration.ofMillis(e.getDurationMs())))
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        dto.setTotalMs(lastEnd != null && requirement.getCreatedAt() != null
+                ? Duration.between(requirement.getCreatedAt(), lastEnd).toMillis()
+                : null);
+
+        dto.setQueueMs(sumDuration(events, TraceEventKind.QUEUE));
+        dto.setStageMs(events.stream()
+                .filter(e -> e.getKind() == TraceEventKind.STAGE)
+                .collect(Collectors.groupingBy(RequirementTraceEvent::getName, TreeMap::new,
+                        Collectors.summingLong(RequirementTraceEvent::getDurationMs))));
+
+        List<RequirementTraceEvent> aiCalls = events.stream()
+                .filter(e -> e.getKind() == TraceEventKind.AI_CALL)
+                .toList();
+        dto.setAiAttempts(aiCalls.stream()
+                .filter(e -> !Boolean.TRUE.equals(e.getCacheHit()))
+                .collect(Collectors.groupingBy(RequirementTraceEvent::getName, TreeMap::new, Collectors.counting())));
+        dto.setAiFailures(aiCalls.stream()
+                .filter(e -> !PipelineMetrics.SUCCESS.equals(e.getOutcome()))
+                .count());
+        dto.setCacheHits(aiCalls.stream()
+                .filter(e -> Boolean.TRUE.equals(e.getCacheHit()))
+                .count());
+        dto.setPromptTokens(sum(aiCalls, RequirementTraceEvent::getPromptTokens));
+        dto.setCompletionTokens(sum(aiCalls, RequirementTraceEvent::getCompletionTokens));
+        dto.setBytesOut(sum(aiCalls, RequirementTraceEvent::getBytesOut));
+        dto.setBytesIn(sum(aiCalls, RequirementTraceEvent::getBytesIn));
+
+        dto.setEvents(events.stream().map(this::mapToDTO).toList());
+        return dto;
+    }
+
+    /**
+     * Перцентили длительности этапов, шагов и вызовов LLM за последние window
+     */
+    @Transactional(readOnly = true)
+    public List<StageLatencyDTO> getLatencyStats(Duration window) {
+        return eventRepository.findLatencyStats(LocalDateTime.now().minus(window)).stream()
+                .map(stats -> {
+                    StageLatencyDTO dto = new StageLatencyDTO();
+                    dto.setKind(stats.getKind());
+                    dto.setName(stats.getName());
+                    dto.setCount(stats.getCount());
+                    dto.setP50Ms(round(stats.getP50()));
+                    dto.setP95Ms(round(stats.getP95()));
+                    dto.setP99Ms(round(stats.getP99()));
+                    dto.setMaxMs(stats.getMax());
+                    return dto;
+                })
+                .toList();
+    }
+
+    private TraceEventDTO mapToDTO(RequirementTraceEvent event) {
+        TraceEventDTO dto = new TraceEventDTO();
+        dto.setKind(event.getKind().name());
+        dto.setName(event.getName());
+        dto.setStartedAt(event.getStartedAt());
+        dto.setDurationMs(event.getDurationMs());
+        dto.setOutcome(event.getOutcome());
+        dto.setAttempt(event.getAttempt());
+        dto.setBytesOut(event.getBytesOut());
+        dto.setBytesIn(event.getBytesIn());
+        dto.setPromptTokens(event.getPromptTokens());
+        dto.setCompletionTokens(event.getCompletionTokens());
+        dto.setCacheHit(event.getCacheHit());
+        return dto;
+    }
+
+    private long sumDuration(List<RequirementTraceEvent> events, TraceEventKind kind) {
+        return events.stream()
+                .filter(e -> e.getKind() == kind)
+                .mapToLong(RequirementTraceEvent::getDurationMs)
+                .sum();
+    }
+
+    private long sum(List<RequirementTraceEvent> events, Function<RequirementTraceEvent, Integer> field) {
+        return events.stream()
+                .map(field)
+                .filter(Objects::nonNull)
+                .mapToLong(Integer::longValue)
+                .sum();
+    }
+
+    private Long round(Double value) {
+        return value != null ? Math.round(value) : null;
+    }
+}
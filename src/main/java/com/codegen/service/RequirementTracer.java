@@ -0,0 +1,175 @@
+package com.codegen.service;
+
+import com.codegen.model.RequirementTraceEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Запись трассировки обработки требования
+ * Текущее требование хранится в контексте потока (переносится в подзадачи через wrap),
+ * события копятся в памяти и периодически пакетно вставляются в requirement_trace_events
+ */
+@Component
+@Slf4j
+public class RequirementTracer {
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String schema;
+    private final boolean enabled;
+    private final int maxBuffered;
+    private final Duration retention;
+
+    private final ConcurrentLinkedQueue<RequirementTraceEvent> buffer = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+
+    public RequirementTracer(JdbcTemplate jdbcTemplate,
+                             @Value("${spring.jpa.properties.hibernate.default_schema:codegen}") String schema,
+                             @Value("${trace.enabled:true}") boolean enabled,
+                             @Value("${trace.max-buffered:10000}") int maxBuffered,
+                             @Value("${trace.retention:7d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.schema = schema;
+        this.enabled = enabled;
+        this.maxBuffered = maxBuffered;
+        this.retention = retention;
+    }
+
+    /**
+     * Контекст трассировки требования для текущего потока
+     */
+    public Scope open(Long requirementId) {
+        Long previous = CURRENT.get();
+        CURRENT.set(requirementId);
+        return () -> {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public Long currentRequirementId() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Перенос контекста в подзадачу, выполняемую в другом потоке
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        Long requirementId = CURRENT.get();
+        if (requirementId == null) {
+            return task;
+        }
+        return () -> {
+            try (Scope scope = open(requirementId)) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * Событие текущего требования, вне контекста отбрасывается
+     */
+    public void record(RequirementTraceEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.getRequirementId() == null) {
+            event.setRequirementId(CURRENT.get());
+            if (event.getRequirementId() == null) {
+                return;
+            }
+        }
+        //трассировка не должна занимать память без ограничений, если база недоступна
+        if (buffered.incrementAndGet() > maxBuffered) {
+            buffered.decrementAndGet();
+            return;
+        }
+        buffer.add(event);
+    }
+
+    @Scheduled(fixedDelayString = "${trace.flush-interval-ms:1000}")
+    public void flush() {
+        List<RequirementTraceEvent> events = new ArrayList<>();
+        RequirementTraceEvent event;
+        while ((event = buffer.poll()) != null) {
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        buffered.addAndGet(-events.size());
+
+        try {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO " + schema + ".requirement_trace_events " +
+                            "(requirement_id, kind, name, started_at, duration_ms, outcome, attempt, " +
+                            "bytes_out, bytes_in, prompt_tokens, completion_tokens, cache_hit) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    events,
+                    events.size(),
+                    (ps, e) -> {
+                        ps.setLong(1, e.getRequirementId());
+                        ps.setString(2, e.getKind().name());
+                        ps.setString(3, e.getName());
+                        ps.setTimestamp(4, Timestamp.valueOf(e.getStartedAt()));
+                        ps.setLong(5, e.getDurationMs());
+                        ps.setString(6, e.getOutcome());
+                        ps.setObject(7, e.getAttempt(), Types.INTEGER);
+                        ps.setObject(8, e.getBytesOut(), Types.INTEGER);
+                        ps.setObject(9, e.getBytesIn(), Types.INTEGER);
+                        ps.setObject(10, e.getPromptTokens(), Types.INTEGER);
+                        ps.setObject(11, e.getCompletionTokens(), Types.INTEGER);
+                        ps.setObject(12, e.getCacheHit(), Types.BOOLEAN);
+                    });
+            log.debug("Flushed {} trace events", events.size());
+        } catch (Exception e) {
+            //трассировка диагностическая, повторно не вставляем
+            log.warn("Failed to flush {} trace events: {}", events.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Удаление событий старше trace.retention
+     */
+    @Scheduled(fixedDelayString = "${trace.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        try {
+            int deleted = jdbcTemplate.update(
+                    "DELETE FROM " + schema + ".requirement_trace_events WHERE started_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+            if (deleted > 0) {
+                log.info("Deleted {} expired trace events", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to delete expired trace events: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.codegen.service;
+
+import com.codegen.model.CodeTemplate;
+import com.codegen.model.TemplateType;
+import com.codegen.repository.CodeTemplateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш базы знаний шаблонов
+ * Все шаблоны загружаются одним запросом и индексируются по (язык, фреймворк), языку и типу.
+ * Сбрасывается при изменении через TemplateManagementService, изменения на других узлах
+ * обнаруживаются периодической сверкой версии каталога (количество и время последнего изменения)
+ */
+@Component
+@Slf4j
+public class TemplateCache {
+
+    private final CodeTemplateRepository templateRepository;
+    private final Counter hits;
+    private final Counter misses;
+
+    //увеличивается при каждом сбросе, загрузка начатая до сброса не попадает в кэш
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+    private volatile String catalogVersion;
+
+    public TemplateCache(CodeTemplateRepository templateRepository, MeterRegistry meterRegistry) {
+        this.templateRepository = templateRepository;
+        this.hits = Counter.builder("templates.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("templates.cache.misses").register(meterRegistry);
+        Gauge.builder("templates.cache.size", this, cache -> {
+                    Snapshot current = cache.snapshot;
+                    return current != null ? current.size() : 0;
+                })
+                .description("Templates held in the knowledge-base cache")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        catalogVersion = currentCatalogVersion();
+        Snapshot loaded = load();
+        log.info("Template cache warmed with {} templates", loaded.size());
+    }
+
+    public List<CodeTemplate> findByLanguageAndFramework(String language, String framework) {
+        return snapshot().byLanguageAndFramework().getOrDefault(new TemplateKey(language, framework), List.of());
+    }
+
+    public List<CodeTemplate> findByLanguage(String language) {
+        return snapshot().byLanguage().getOrDefault(language, List.of());
+    }
+
+    public List<CodeTemplate> findByType(TemplateType type) {
+        return snapshot().byType().getOrDefault(type, List.of());
+    }
+
+    /**
+     * Сброс кэша после изменения шаблонов
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    /**
+     * Сверка версии каталога: шаблоны могли измениться на другом узле
+     */
+    @Scheduled(fixedDelayString = "${templates.cache.version-check-ms:5000}")
+    public void checkVersion() {
+        try {
+            String version = currentCatalogVersion();
+            if (!version.equals(catalogVersion)) {
+                if (catalogVersion != null) {
+                    log.info("Template catalog changed ({} -> {}), invalidating cache", catalogVersion, version);
+                }
+                catalogVersion = version;
+                invalidate();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to check template catalog version: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        return load();
+    }
+
+    private Snapshot load() {
+        loadLock.lock();
+        try {
+            Snapshot current = snapshot;
+            if (current != null) {
+                return current;
+            }
+
+            long loadGeneration = generation.get();
+            Snapshot loaded = Snapshot.of(templateRepository.findAll());
+            if (generation.get() == loadGeneration) {
+                snapshot = loaded;
+            }
+            return loaded;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private String currentCatalogVersion() {
+        CodeTemplateRepository.CatalogVersion version = templateRepository.findCatalogVersion();
+        return version.getCount() + ":" + version.getLastModified();
+    }
+
+    private record TemplateKey(String language, String framework) {
+    }
+
+    private record Snapshot(Map<TemplateKey, List<CodeTemplate>> byLanguageAndFramework,
+                            Map<String, List<CodeTemplate>> byLanguage,
+                            Map<TemplateType, List<CodeTemplate>> byType,
+                            int size) {
+
+        static Snapshot of(List<CodeTemplate> templates) {
+            return new Snapshot(
+                    group(templates.stream()
+                            .filter(template -> template.getFramework() != null)
+                            .collect(Collectors.groupingBy(
+                                    template -> new TemplateKey(template.getLanguage(), template.getFramework())))),
+                    group(templates.stream()
+                            .collect(Collectors.groupingBy(CodeTemplate::getLanguage))),
+                    group(templates.stream()
+                            .filter(template -> template.getType() != null)
+                            .collect(Collectors.groupingBy(CodeTemplate::getType))),
+                    templates.size());
+        }
+
+        private static <K> Map<K, List<CodeTemplate>> group(Map<K, List<CodeTemplate>> grouped) {
+            return grouped.entrySet().stream()
+                    .filter(entry -> Objects.nonNull(entry.getKey()))
+                    .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                            entry -> Collections.unmodifiableList(entry.getValue())));
+        }
+    }
+}
@@ -7,6 +7,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,6 +20,8 @@ import java.util.stream.Collectors;
 public class TemplateManagementService {
 
     private final CodeTemplateRepository templateRepository;
+    private final TemplateUsageCounter usageCounter;
+    private final TemplateCache templateCache;
 
     /**
      * Добавление нового шаблона в базу
@@ -26,7 +29,9 @@ public class TemplateManagementService {
     public CodeTemplate addTemplate(CodeTemplate template) {
         log.info("Adding new template: {} for language: {}",
                 template.getName(), template.getLanguage());
-        return templateRepository.save(template);
+        CodeTemplate saved = templateRepository.save(template);
+        templateCache.invalidate();
+        return saved;
     }
 
     /**
@@ -42,7 +47,9 @@ public class TemplateManagementService {
         existing.setVariables(updatedTemplate.getVariables());
 
         log.info("Updated template: {}", id);
-        return templateRepository.save(existing);
+        CodeTemplate saved = templateRepository.save(existing);
+        templateCache.invalidate();
+        return saved;
     }
 
     /**
@@ -60,12 +67,31 @@ public class TemplateManagementService {
 
     /**
      * Получение наиболее используемых шаблонов
+     * Счетчики учитывают еще не сброшенные в базу использования
+     * Возвращаются копии, чтобы счетчик не менял управляемые сущности
      */
     public List<CodeTemplate> getMostUsedTemplates(String language, int limit) {
         return templateRepository.findByLanguage(language)
                 .stream()
-                .sorted((t1, t2) -> t2.getUsageCount().compareTo(t1.getUsageCount()))
+                .sorted(Comparator.comparingLong(usageCounter::currentCount).reversed())
                 .limit(limit)
+                .map(template -> withUsageCount(template, usageCounter.currentCount(template)))
                 .collect(Collectors.toList());
     }
+
+    private CodeTemplate withUsageCount(CodeTemplate template, long usageCount) {
+        CodeTemplate copy = new CodeTemplate();
+        copy.setId(template.getId());
+        copy.setName(template.getName());
+        copy.setDescription(template.getDescription());
+        copy.setLanguage(template.getLanguage());
+        copy.setFramework(template.getFramework());
+        copy.setType(template.getType());
+        copy.setTemplateContent(template.getTemplateContent());
+        copy.setVariables(template.getVariables());
+        copy.setUsageCount((int) usageCount);
+        copy.setCreatedAt(template.getCreatedAt());
+        copy.setUpdatedAt(template.getUpdatedAt());
+        return copy;
+    }
 }
\ No newline at end of file
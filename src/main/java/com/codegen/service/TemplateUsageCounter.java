@@ -0,0 +1,104 @@
+package com.codegen.service;
+
+import com.codegen.model.CodeTemplate;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счетчик использований шаблонов
+ * Приращения копятся в памяти (LongAdder на шаблон) и периодически сбрасываются
+ * в базу одним UPDATE usage_count = usage_count + delta, без перезаписи строки шаблона
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TemplateUsageCounter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.default_schema:codegen}")
+    private String schema;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public void increment(Long templateId) {
+        if (templateId != null) {
+            pending.computeIfAbsent(templateId, id -> new LongAdder()).increment();
+        }
+    }
+
+    public void incrementAll(Collection<Long> templateIds) {
+        templateIds.forEach(this::increment);
+    }
+
+    /**
+     * Несброшенные приращения шаблона
+     */
+    public long pendingDelta(Long templateId) {
+        LongAdder adder = pending.get(templateId);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    /**
+     * Счетчик с учетом несброшенных приращений
+     */
+    public long currentCount(CodeTemplate template) {
+        long stored = template.getUsageCount() != null ? template.getUsageCount() : 0;
+        return stored + pendingDelta(template.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${templates.usage.flush-interval-ms:10000}")
+    public void flush() {
+        List<Long> ids = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        pending.forEach((id, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                ids.add(id);
+                deltas.add(delta);
+            }
+        });
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE " + schema + ".code_templates t SET usage_count = t.usage_count + d.delta " +
+                                "FROM (SELECT UNNEST(?) AS id, UNNEST(?) AS delta) d WHERE t.id = d.id");
+                Array idArray = connection.createArrayOf("bigint", ids.toArray());
+                Array deltaArray = connection.createArrayOf("bigint", deltas.toArray());
+                ps.setArray(1, idArray);
+                ps.setArray(2, deltaArray);
+                return ps;
+            });
+            log.debug("Flushed usage counters of {} templates", ids.size());
+        } catch (Exception e) {
+            //возвращаем приращения, чтобы не потерять их до следующего сброса
+            for (int i = 0; i < ids.size(); i++) {
+                pending.computeIfAbsent(ids.get(i), id -> new LongAdder()).add(deltas.get(i));
+            }
+            log.error("Failed to flush template usage counters: ", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -3,7 +3,9 @@ const API_CONFIG = {
     ENDPOINTS: {
         GENERATE_CODE: '/v1/code-generation/generate',
         GET_STATUS: '/v1/code-generation/status/{id}',
+        GET_STATUS_SUMMARY: '/v1/code-generation/status/{id}/summary',
         GET_CODE: '/v1/code-generation/code/{id}',
+        STREAM_CODE: '/v1/code-generation/stream/{id}',
         GET_HEALTH: '/v1/code-generation/health',
 
         //пользователи
@@ -79,6 +81,89 @@ async function checkStatus(requirementId) {
     }
 }
 
+// легкий статус требования, без кода и отчетов
+async function checkStatusSummary(requirementId) {
+    const endpoint = API_CONFIG.ENDPOINTS.GET_STATUS_SUMMARY.replace('{id}', requirementId);
+    const response = await fetch(`${API_CONFIG.BASE_URL}${endpoint}`);
+
+    if (!response.ok) {
+        throw new Error(`HTTP error status: ${response.status}`);
+    }
+
+    return await response.json();
+}
+
+// подписка на статусы и потоковую генерацию кода (Server-Sent Events)
+function openCodeStream(requirementId, onChunk, onStatus) {
+    const endpoint = API_CONFIG.ENDPOINTS.STREAM_CODE.replace('{id}', requirementId);
+    const source = new EventSource(`${API_CONFIG.BASE_URL}${endpoint}`);
+
+    source.addEventListener('chunk', event => {
+        const data = JSON.parse(event.data);
+        onChunk(data.fileName, data.content);
+    });
+    source.addEventListener('status', event => {
+        const data = JSON.parse(event.data);
+        onStatus(data.status);
+    });
+
+    return source;
+}
+
+// ожидание завершения генерации: статусы приходят через SSE,
+// при обрыве соединения - редкий опрос легкого статуса
+function waitForCompletion(requirementId, { onStatus, onChunk, timeoutMs = 600000 }) {
+    return new Promise((resolve, reject) => {
+        const isTerminal = status => status === 'COMPLETED' || status === 'FAILED';
+        let finished = false;
+        let safetyTimer = null;
+        let fallbackTimer = null;
+
+        const stop = () => {
+            finished = true;
+            source.close();
+            clearInterval(safetyTimer);
+            clearInterval(fallbackTimer);
+            clearTimeout(timeoutTimer);
+        };
+        const handleStatus = status => {
+            if (finished) return;
+            onStatus(status);
+            if (isTerminal(status)) {
+                stop();
+                resolve(status);
+            }
+        };
+        const poll = async () => {
+            try {
+                const summary = await checkStatusSummary(requirementId);
+                handleStatus(summary.status);
+            } catch (error) {
+                console.error('Error checking status:', error);
+            }
+        };
+
+        const timeoutTimer = setTimeout(() => {
+            if (finished) return;
+            stop();
+            reject(new Error('Generation timeout exceeded'));
+        }, timeoutMs);
+
+        const source = openCodeStream(requirementId, onChunk, handleStatus);
+        // поток оборвался - вместо страховочного опроса частый, запускается один раз
+        source.onerror = () => {
+            source.close();
+            if (!finished && fallbackTimer === null) {
+                clearInterval(safetyTimer);
+                fallbackTimer = setInterval(poll, 2000);
+                poll();
+            }
+        };
+        // страховочный опрос на случай пропущенного события
+        safetyTimer = setInterval(poll, 15000);
+    });
+}
+
 // получение сгенерированного кода
 async function getGeneratedCode(requirementId) {
     try {
@@ -165,14 +250,21 @@ async function updateUserProfile(userId, userData) {
         throw error;
     }
 }
-async function getTemplates() {
+//одна страница списка по курсору: { items, nextCursor, hasMore }, следующая запрашивается страницей по кнопке
+async function fetchPage(endpoint, cursor = null, options = {}) {
+    const url = new URL(`${API_CONFIG.BASE_URL}${endpoint}`, window.location.origin);
+    if (cursor) url.searchParams.set('cursor', cursor);
+    const response = await fetch(url, options);
+    if (!response.ok) throw new Error(`Error loading ${endpoint}`);
+    return await response.json();
+}
+
+async function getTemplates(cursor = null) {
     try {
-        const response = await fetch(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.GET_TEMPLATES}`);
-        if (!response.ok) throw new Error('Error loading templates');
-        return await response.json();
+        return await fetchPage(API_CONFIG.ENDPOINTS.GET_TEMPLATES, cursor);
     } catch (error) {
         console.error(error);
-        return [];
+        throw error;
     }
 }
 
@@ -181,19 +273,17 @@ function getDownloadUrl(templateId) {
     return `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.DOWNLOAD_TEMPLATE.replace('{id}', templateId)}`;
 }
 
-async function getUserProjects() {
+async function getUserProjects(cursor = null) {
     try {
-        const response = await fetch(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.GET_PROJECTS}`, {
+        return await fetchPage(API_CONFIG.ENDPOINTS.GET_PROJECTS, cursor, {
             headers: {
                 ...API_CONFIG.DEFAULT_HEADERS,
                 'User-Id': currentUser.id.toString()
             }
         });
-        if (!response.ok) throw new Error('Error loading projects');
-        return await response.json();
     } catch (error) {
         console.error(error);
-        return [];
+        throw error;
     }
 }
 
@@ -0,0 +1,140 @@
+package com.codegen.controller;
+
+import com.codegen.model.GeneratedCode;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementStatus;
+import com.codegen.model.User;
+import com.codegen.model.UserRole;
+import com.codegen.model.ValidationReport;
+import com.codegen.repository.GeneratedCodeRepository;
+import com.codegen.repository.RequirementRepository;
+import com.codegen.repository.UserRepository;
+import com.codegen.repository.ValidationReportRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Количество SQL-запросов при чтении статуса и кода требования не зависит от числа файлов
+ * Защищает от возврата ленивой загрузки кода и отчетов (1 + 2N запросов)
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CodeGenerationControllerStatementCountTest {
+
+    private static final int MAX_STATEMENTS = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RequirementRepository requirementRepository;
+    @Autowired
+    private GeneratedCodeRepository codeRepository;
+    @Autowired
+    private ValidationReportRepository reportRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void statusRunsAtMostTwoStatements(int files) throws Exception {
+        Long requirementId = seedRequirement(files);
+
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/code-generation/status/{id}", requirementId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value(RequirementStatus.COMPLETED.name()))
+                .andExpect(jsonPath("$.generatedCodes.length()").value(files))
+                .andExpect(jsonPath("$.generatedCodes[*].validationReport.qualityScore").isNotEmpty());
+
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements for /status with %d files", files)
+                .isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50})
+    void codeRunsAtMostTwoStatements(int files) throws Exception {
+        Long requirementId = seedRequirement(files);
+
+        statistics.clear();
+        mockMvc.perform(get("/api/v1/code-generation/code/{id}", requirementId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(files))
+                .andExpect(jsonPath("$[*].validationReport.qualityScore").isNotEmpty());
+
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements for /code with %d files", files)
+                .isLessThanOrEqualTo(MAX_STATEMENTS);
+    }
+
+    private Long seedRequirement(int files) {
+        User user = new User();
+        user.setUsername("statement-count-test");
+        user.setRole(UserRole.DEVELOPER);
+        user.setCreatedAt(LocalDateTime.now());
+        userRepository.save(user);
+
+        Requirement requirement = new Requirement();
+        requirement.setDescription("Requirement with " + files + " files");
+        requirement.setLanguage("java");
+        requirement.setFramework("spring");
+        requirement.setUser(user);
+        requirement = requirementRepository.save(requirement);
+        requirement.setStatus(RequirementStatus.COMPLETED);
+        requirement = requirementRepository.save(requirement);
+
+        List<GeneratedCode> codes = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            GeneratedCode code = new GeneratedCode();
+            code.setSourceCode("public class File" + i + " {\n}\n");
+            code.setFileName("file_" + i + ".java");
+            code.setPackagePath("com.generated.java");
+            code.setRequirement(requirement);
+            codes.add(code);
+        }
+        codes = codeRepository.saveAll(codes);
+
+        List<ValidationReport> reports = new ArrayList<>();
+        for (GeneratedCode code : codes) {
+            ValidationReport report = new ValidationReport();
+            report.setGeneratedCode(code);
+            report.setHasErrors(false);
+            report.setHasSyntaxErrors(false);
+            report.setErrorDetails("[]");
+            report.setOptimizationSuggestions("[]");
+            report.setQualityScore(90);
+            reports.add(report);
+        }
+        reportRepository.saveAll(reports);
+
+        return requirement.getId();
+    }
+}
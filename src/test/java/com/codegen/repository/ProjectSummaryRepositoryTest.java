@@ -0,0 +1,58 @@
+package com.codegen.repository;
+
+import com.codegen.model.Project;
+import com.codegen.model.User;
+import com.codegen.model.UserRole;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Страницы проектов без курсора и после него, с фильтрами и без
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProjectSummaryRepositoryTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void pagesThroughProjectsWithOptionalFilters() {
+        User user = new User();
+        user.setUsername("project-summary-test");
+        user.setRole(UserRole.DEVELOPER);
+        user.setCreatedAt(LocalDateTime.now());
+        userRepository.save(user);
+        for (int i = 0; i < 5; i++) {
+            Project project = new Project();
+            project.setName("Project " + i);
+            project.setLanguage(i % 2 == 0 ? "java" : "python");
+            project.setFramework("none");
+            project.setUser(user);
+            projectRepository.save(project);
+        }
+
+        List<ProjectRepository.ProjectSummary> first =
+                projectRepository.findSummaries(user.getId(), null, null, null, null, 3);
+        assertThat(first).hasSize(3);
+        ProjectRepository.ProjectSummary last = first.get(2);
+        List<ProjectRepository.ProjectSummary> second =
+                projectRepository.findSummaries(user.getId(), last.getUpdatedAt(), last.getId(), null, null, 3);
+        assertThat(second).hasSize(2)
+                .extracting(ProjectRepository.ProjectSummary::getId)
+                .doesNotContainAnyElementsOf(first.stream().map(ProjectRepository.ProjectSummary::getId).toList());
+
+        assertThat(projectRepository.findSummaries(user.getId(), null, null, "java", "none", 10))
+                .hasSize(3)
+                .allSatisfy(project -> assertThat(project.getLanguage()).isEqualTo("java"));
+    }
+}
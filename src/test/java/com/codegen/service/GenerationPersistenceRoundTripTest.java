@@ -0,0 +1,267 @@
+package com.codegen.service;
+
+import com.codegen.model.CodeTemplate;
+import com.codegen.model.Requirement;
+import com.codegen.model.TemplateType;
+import com.codegen.model.User;
+import com.codegen.model.UserRole;
+import com.codegen.repository.CodeTemplateRepository;
+import com.codegen.repository.RequirementRepository;
+import com.codegen.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Обращения к базе при сохранении кода и отчетов одного требования
+ * Файлы и отчеты вставляются одним JDBC batch каждый, идентификаторы берутся из пула последовательности,
+ * число обращений на требование не зависит от количества шаблонов
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(GenerationPersistenceRoundTripTest.RoundTripConfig.class)
+@Slf4j
+class GenerationPersistenceRoundTripTest {
+
+    private static final int FEW_TEMPLATES = 2;
+    private static final int MANY_TEMPLATES = 8;
+
+    @MockBean
+    private AIModelService aiModelService;
+
+    @Autowired
+    private CodeGenerationService generationService;
+    @Autowired
+    private CodeValidationService validationService;
+    @Autowired
+    private TemplateCache templateCache;
+    @Autowired
+    private CodeTemplateRepository templateRepository;
+    @Autowired
+    private RequirementRepository requirementRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoundTripCounter counter;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        when(aiModelService.generateCode(any(), any(), any(), any()))
+                .thenReturn("class Generated {\n}\n");
+        when(aiModelService.validateAndOptimize(any(), any()))
+                .thenReturn("{\"errors\":[],\"suggestions\":[],\"hasSyntaxErrors\":false,\"qualityScore\":90}");
+
+        user = new User();
+        user.setUsername("round-trip-test");
+        user.setRole(UserRole.DEVELOPER);
+        user.setCreatedAt(LocalDateTime.now());
+        userRepository.save(user);
+    }
+
+    @Test
+    void filesAndReportsOfOneRequirementAreInsertedInOneBatchEach() {
+        Requirement requirement = requirementWithTemplates("batch", MANY_TEMPLATES);
+
+        List<RoundTrip> generation = counter.record(() -> generationService.generateCode(requirement));
+        List<RoundTrip> validation = counter.record(() -> validationService.validateRequirementCodes(requirement));
+
+        assertInsertedInOneBatch(generation, "generated_codes", MANY_TEMPLATES);
+        assertInsertedInOneBatch(validation, "validation_reports", MANY_TEMPLATES);
+
+        //пул из 50 идентификаторов: первое обращение к новой последовательности Hibernate делает дважды
+        assertThat(sequenceCalls(generation, "generated_codes_seq")).isLessThanOrEqualTo(2);
+        assertThat(sequenceCalls(validation, "validation_reports_seq")).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void roundTripsPerRequirementDoNotGrowWithTemplateCount() {
+        Requirement few = requirementWithTemplates("few", FEW_TEMPLATES);
+        Requirement many = requirementWithTemplates("many", MANY_TEMPLATES);
+
+        List<RoundTrip> fewGeneration = counter.record(() -> generationService.generateCode(few));
+        List<RoundTrip> fewValidation = counter.record(() -> validationService.validateRequirementCodes(few));
+        List<RoundTrip> manyGeneration = counter.record(() -> generationService.generateCode(many));
+        List<RoundTrip> manyValidation = counter.record(() -> validationService.validateRequirementCodes(many));
+
+        log.info("Round-trips per requirement: generation {} / {}, validation {} / {} ({} / {} templates)",
+                fewGeneration.size(), manyGeneration.size(), fewValidation.size(), manyValidation.size(),
+                FEW_TEMPLATES, MANY_TEMPLATES);
+
+        //обращения к последовательности зависят от состояния пула, а не от числа файлов
+        assertThat(withoutSequenceCalls(manyGeneration)).hasSameSizeAs(withoutSequenceCalls(fewGeneration));
+        assertThat(withoutSequenceCalls(manyValidation)).hasSameSizeAs(withoutSequenceCalls(fewValidation));
+    }
+
+    private Requirement requirementWithTemplates(String framework, int templates) {
+        TemplateType[] types = TemplateType.values();
+        for (int i = 0; i < templates; i++) {
+            CodeTemplate template = new CodeTemplate();
+            template.setName(framework + " template " + i);
+            template.setLanguage("kotlin");
+            template.setFramework(framework);
+            template.setType(types[i % types.length]);
+            template.setTemplateContent("package com.example\n\nclass Template" + i + "\n");
+            template.setCreatedAt(LocalDateTime.now());
+            templateRepository.save(template);
+        }
+        //кэш шаблонов прогрет, как в работающем приложении
+        templateCache.invalidate();
+        templateCache.findByLanguageAndFramework("kotlin", framework);
+
+        Requirement requirement = new Requirement();
+        requirement.setDescription("Requirement for " + framework + " templates");
+        requirement.setLanguage("kotlin");
+        requirement.setFramework(framework);
+        requirement.setStructuredModel("{\"entities\":[\"Order\"]}");
+        requirement.setUser(user);
+        return requirementRepository.save(requirement);
+    }
+
+    private void assertInsertedInOneBatch(List<RoundTrip> roundTrips, String table, int rows) {
+        Pattern insert = Pattern.compile("insert\\s+into\\s+(\\w+\\.)?" + table + "\\b");
+        List<RoundTrip> inserts = roundTrips.stream()
+                .filter(roundTrip -> insert.matcher(roundTrip.sql()).find())
+                .toList();
+        assertThat(inserts).as("inserts into %s", table)
+                .singleElement()
+                .satisfies(batch -> assertThat(batch.batchSize()).isEqualTo(rows));
+    }
+
+    private long sequenceCalls(List<RoundTrip> roundTrips, String sequence) {
+        return roundTrips.stream().filter(roundTrip -> roundTrip.sql().contains(sequence)).count();
+    }
+
+    private List<RoundTrip> withoutSequenceCalls(List<RoundTrip> roundTrips) {
+        return roundTrips.stream().filter(roundTrip -> !roundTrip.sql().contains("_seq")).toList();
+    }
+
+    /**
+     * Одно обращение к базе: выполнение запроса (batchSize 0) или JDBC batch из batchSize строк
+     */
+    record RoundTrip(String sql, int batchSize) {
+    }
+
+    @TestConfiguration
+    static class RoundTripConfig {
+        @Bean
+        static RoundTripCounter roundTripCounter() {
+            return new RoundTripCounter();
+        }
+    }
+
+    /**
+     * Обертка над DataSource, которая записывает каждое выполнение запроса и batch, пока идет запись
+     */
+    static class RoundTripCounter implements BeanPostProcessor {
+
+        private final List<RoundTrip> roundTrips = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean recording;
+
+        List<RoundTrip> record(Runnable action) {
+            roundTrips.clear();
+            recording = true;
+            try {
+                action.run();
+            } finally {
+                recording = false;
+            }
+            synchronized (roundTrips) {
+                return List.copyOf(roundTrips);
+            }
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return result instanceof Connection connection ? wrapConnection(connection) : result;
+                });
+            }
+            return bean;
+        }
+
+        private Connection wrapConnection(Connection connection) {
+            return proxy(Connection.class, connection, (target, method, args) -> {
+                Object result = invoke(target, method, args);
+                if (result instanceof Statement statement) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                    return wrapStatement(method.getReturnType(), statement, sql);
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T wrapStatement(Class<T> type, Object statement, String preparedSql) {
+            AtomicInteger pending = new AtomicInteger();
+            return proxy(type, (T) statement, (target, method, args) -> {
+                switch (method.getName()) {
+                    case "addBatch" -> pending.incrementAndGet();
+                    case "clearBatch" -> pending.set(0);
+                    case "executeBatch", "executeLargeBatch" -> add(preparedSql, pending.getAndSet(0));
+                    case "execute", "executeQuery", "executeUpdate", "executeLargeUpdate" ->
+                            add(args != null && args.length > 0 && args[0] instanceof String sql ? sql : preparedSql, 0);
+                    default -> {
+                    }
+                }
+                return invoke(target, method, args);
+            });
+        }
+
+        private void add(String sql, int batchSize) {
+            if (recording) {
+                roundTrips.add(new RoundTrip(sql != null ? sql.toLowerCase(Locale.ROOT) : "", batchSize));
+            }
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, TargetHandler handler) {
+            InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+            return (T) Proxy.newProxyInstance(RoundTripCounter.class.getClassLoader(), new Class<?>[]{type},
+                    invocationHandler);
+        }
+
+        @FunctionalInterface
+        private interface TargetHandler {
+            Object invoke(Object target, Method method, Object[] args) throws Throwable;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.codegen.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Ожидающие одинакового запроса получают результат или ошибку выполняющего, в том числе Error
+ */
+class InFlightRequestCoalescerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InFlightRequestCoalescer coalescer = new InFlightRequestCoalescer(meterRegistry);
+
+    @Test
+    void followerReceivesLeaderResult() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = call(() -> {
+            await(release);
+            return "result";
+        });
+        CompletableFuture<String> follower = joinInFlight();
+        release.countDown();
+
+        assertThat(leader.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("result");
+        assertThat(follower.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isEqualTo("result");
+    }
+
+    @Test
+    void followerIsReleasedWhenLeaderThrowsError() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = call(() -> {
+            await(release);
+            throw new StackOverflowError("leader failed");
+        });
+        CompletableFuture<String> follower = joinInFlight();
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS))
+                .hasCauseInstanceOf(StackOverflowError.class);
+        assertThatThrownBy(() -> follower.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS))
+                .hasCauseInstanceOf(StackOverflowError.class);
+
+        //ключ освобожден, следующий вызов выполняется заново
+        assertThat(coalescer.execute("key", () -> "retried")).isEqualTo("retried");
+    }
+
+    //второй вызов с тем же ключом, возвращается после того как он присоединился к выполняющемуся
+    private CompletableFuture<String> joinInFlight() throws InterruptedException {
+        CompletableFuture<String> follower = call(() -> "not called");
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (meterRegistry.counter("ai.requests.coalesced").count() < 1) {
+            assertThat(System.nanoTime()).as("follower joined the in-flight call").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        return follower;
+    }
+
+    private CompletableFuture<String> call(Supplier<String> supplier) throws InterruptedException {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread.ofVirtual().start(() -> {
+            started.countDown();
+            try {
+                result.complete(coalescer.execute("key", supplier));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        started.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        //первый вызов должен успеть занять ключ
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (meterRegistry.get("ai.requests.inflight").gauge().value() < 1 && !result.isDone()) {
+            assertThat(System.nanoTime()).as("call registered in flight").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        return result;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.codegen.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Минификация модели требований и урезание шаблона до бюджета
+ */
+class PromptBuilderTest {
+
+    private final PromptBuilder promptBuilder =
+            promptBuilder(6000, Set.of("explanation", "notes", "comments", "reasoning", "assumptions"));
+
+    @Test
+    void dropsAnalyzerFieldsOnlyAtTopLevel() {
+        String model = """
+                {
+                  "entities": [
+                    {"name": "Ticket", "fields": {"notes": "string", "comments": "List<Comment>"}},
+                    {"name": "Comment", "notes": "free text left by the reviewer"}
+                  ],
+                  "notes": "analyzer note",
+                  "reasoning": "why the entities were chosen",
+                  "endpoints": []
+                }
+                """;
+
+        String minified = promptBuilder.minifyModel(model);
+
+        assertThat(minified).isEqualTo("{\"entities\":[" +
+                "{\"name\":\"Ticket\",\"fields\":{\"notes\":\"string\",\"comments\":\"List<Comment>\"}}," +
+                "{\"name\":\"Comment\",\"notes\":\"free text left by the reviewer\"}]}");
+    }
+
+    @Test
+    void truncatesTemplateAtLineBoundary() {
+        PromptBuilder smallBudget = promptBuilder(100, Set.of());
+        String template = "class Example {\n" + "    // " + "x".repeat(1000) + "\n}";
+
+        String prompt = smallBudget.generationPrompt("{}", "java", "none", template);
+
+        assertThat(prompt).contains("Use template: class Example {\n// ... template truncated. Output only code.");
+    }
+
+    @Test
+    void omitsTemplateWhenFirstLineDoesNotFit() {
+        PromptBuilder smallBudget = promptBuilder(100, Set.of());
+        String template = "// " + "x".repeat(1000) + "\nclass Example {}";
+
+        String prompt = smallBudget.generationPrompt("{}", "java", "none", template);
+
+        assertThat(prompt).contains("Use template: // ... template truncated. Output only code.")
+                .doesNotContain("xxx");
+    }
+
+    private static PromptBuilder promptBuilder(int maxInputTokens, Set<String> modelDropFields) {
+        return new PromptBuilder(new ObjectMapper(), new PipelineMetrics(new SimpleMeterRegistry(), null, null, null),
+                maxInputTokens, 3000, modelDropFields);
+    }
+}
@@ -0,0 +1,110 @@
+package com.codegen.service;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementJob;
+import com.codegen.model.User;
+import com.codegen.model.UserRole;
+import com.codegen.repository.RequirementJobRepository;
+import com.codegen.repository.RequirementRepository;
+import com.codegen.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Одновременная аренда задач двумя узлами: пока первый держит свои задачи заблокированными,
+ * второй получает следующие по порядку, а не пустой результат
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RequirementJobServiceClaimTest {
+
+    private static final int LIMIT = 4;
+    private static final int JOBS = 12;
+
+    @Autowired
+    private RequirementJobService jobService;
+    @Autowired
+    private RequirementJobRepository jobRepository;
+    @Autowired
+    private RequirementRepository requirementRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jobRepository.deleteAll();
+    }
+
+    @Test
+    void secondNodeClaimsNextJobsWhileFirstHoldsItsLocks() throws Exception {
+        enqueueRequirements();
+
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch secondClaimed = new CountDownLatch(1);
+        //первый узел арендует задачи и не завершает транзакцию, пока второй не выполнит свою аренду
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status -> {
+            List<Long> ids = ids(jobService.claim("node-a", JobStage.ANALYZE, LIMIT));
+            firstClaimed.countDown();
+            await(secondClaimed);
+            return ids;
+        }));
+
+        assertThat(firstClaimed.await(10, TimeUnit.SECONDS)).isTrue();
+        List<Long> second;
+        try {
+            second = ids(jobService.claim("node-b", JobStage.ANALYZE, LIMIT));
+        } finally {
+            secondClaimed.countDown();
+        }
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).hasSize(LIMIT);
+        assertThat(second).hasSize(LIMIT)
+                .doesNotContainAnyElementsOf(first.get());
+    }
+
+    private void enqueueRequirements() {
+        User user = new User();
+        user.setUsername("job-claim-test");
+        user.setRole(UserRole.DEVELOPER);
+        user.setCreatedAt(LocalDateTime.now());
+        userRepository.save(user);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            Requirement requirement = new Requirement();
+            requirement.setDescription("Requirement " + i);
+            requirement.setLanguage("java");
+            requirement.setUser(user);
+            ids.add(requirementRepository.save(requirement).getId());
+        }
+        jobService.enqueueAll(ids, user.getId(), RequirementJobService.BATCH_PRIORITY);
+    }
+
+    private static List<Long> ids(List<RequirementJob> jobs) {
+        return jobs.stream().map(RequirementJob::getId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
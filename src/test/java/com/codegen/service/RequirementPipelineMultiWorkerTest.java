@@ -0,0 +1,192 @@
+package com.codegen.service;
+
+import com.codegen.model.JobStage;
+import com.codegen.model.JobStatus;
+import com.codegen.model.Requirement;
+import com.codegen.model.RequirementJob;
+import com.codegen.model.User;
+import com.codegen.model.UserRole;
+import com.codegen.repository.GeneratedCodeRepository;
+import com.codegen.repository.RequirementJobRepository;
+import com.codegen.repository.RequirementRepository;
+import com.codegen.repository.UserRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Несколько обработчиков конвейера над одной базой: каждый этап каждой задачи выполняется ровно один раз
+ * Обработчики опрашивают очередь одновременно, задачи распределяются через FOR UPDATE SKIP LOCKED
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class RequirementPipelineMultiWorkerTest {
+
+    private static final int REQUIREMENTS = 40;
+    private static final int WORKERS = 3;
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(5);
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @MockBean
+    private RequirementAnalysisService analysisService;
+    @MockBean
+    private CodeGenerationService generationService;
+    @MockBean
+    private CodeValidationService validationService;
+
+    @Autowired
+    private RequirementRepository requirementRepository;
+    @Autowired
+    private GeneratedCodeRepository codeRepository;
+    @Autowired
+    private RequirementJobRepository jobRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RequirementStatusService statusService;
+    @Autowired
+    private RequirementJobService jobService;
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    @Autowired
+    private PipelineMetrics metrics;
+    @Autowired
+    private RequirementTracer tracer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //"requirementId:stage" -> сколько раз этап выполнялся
+    private final Map<String, AtomicInteger> executions = new ConcurrentHashMap<>();
+    private final List<PipelineExecutor> executors = new ArrayList<>();
+
+    @AfterEach
+    void shutdownWorkers() {
+        executors.forEach(PipelineExecutor::shutdown);
+    }
+
+    @Test
+    void everyStageOfEveryJobIsProcessedExactlyOnce() throws Exception {
+        doAnswer(invocation -> execute(invocation.getArgument(0), JobStage.ANALYZE))
+                .when(analysisService).analyzeRequirement(any());
+        doAnswer(invocation -> {
+            execute(invocation.getArgument(0), JobStage.GENERATE);
+            return List.of();
+        }).when(generationService).generateCode(any());
+        doAnswer(invocation -> execute(invocation.getArgument(0), JobStage.VALIDATE))
+                .when(validationService).validateRequirementCodes(any());
+
+        List<Long> requirementIds = createRequirements();
+
+        List<RequirementPipelineService> workers = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            workers.add(worker("worker-" + i));
+        }
+
+        //каждый обработчик опрашивает очередь в своем потоке с короткой паузой, опросы узлов пересекаются
+        //платформенные потоки, чтобы опрос не занимал несущие потоки виртуальных потоков конвейера
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> pollers = workers.stream()
+                .map(worker -> Thread.ofPlatform().start(() -> {
+                    while (!stop.get()) {
+                        worker.poll();
+                        LockSupport.parkNanos(POLL_INTERVAL.toNanos());
+                    }
+                }))
+                .toList();
+
+        try {
+            long deadline = System.nanoTime() + TIMEOUT.toNanos();
+            while (jobRepository.countByStatus(JobStatus.COMPLETED) < REQUIREMENTS) {
+                assertThat(System.nanoTime()).as("all jobs completed within %s", TIMEOUT).isLessThan(deadline);
+                Thread.sleep(50);
+            }
+        } finally {
+            stop.set(true);
+            for (Thread poller : pollers) {
+                poller.join();
+            }
+        }
+
+        for (Long requirementId : requirementIds) {
+            for (JobStage stage : JobStage.values()) {
+                assertThat(executions.get(key(requirementId, stage)))
+                        .as("executions of %s for requirement %d", stage, requirementId)
+                        .hasValue(1);
+            }
+        }
+        assertThat(executions).hasSize(REQUIREMENTS * JobStage.values().length);
+
+        List<RequirementJob> jobs = jobRepository.findAll();
+        assertThat(jobs).hasSize(REQUIREMENTS)
+                .allSatisfy(job -> {
+                    assertThat(job.getStatus()).isEqualTo(JobStatus.COMPLETED);
+                    //аренда последнего этапа не перехватывалась и не повторялась
+                    assertThat(job.getAttempts()).isEqualTo(1);
+                });
+
+        //задачи действительно разошлись по нескольким обработчикам
+        Set<String> owners = jobs.stream().map(RequirementJob::getLeaseOwner).collect(Collectors.toSet());
+        assertThat(owners).hasSizeGreaterThan(1);
+    }
+
+    private Object execute(Requirement requirement, JobStage stage) throws InterruptedException {
+        executions.computeIfAbsent(key(requirement.getId(), stage), k -> new AtomicInteger()).incrementAndGet();
+        //вызов AI занимает время, за которое другие обработчики успевают опросить очередь
+        Thread.sleep(20);
+        return requirement;
+    }
+
+    private List<Long> createRequirements() {
+        User user = new User();
+        user.setUsername("pipeline-worker-test");
+        user.setRole(UserRole.DEVELOPER);
+        user.setCreatedAt(LocalDateTime.now());
+        userRepository.save(user);
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < REQUIREMENTS; i++) {
+            Requirement requirement = new Requirement();
+            requirement.setDescription("Requirement " + i);
+            requirement.setLanguage("java");
+            requirement.setUser(user);
+            ids.add(requirementRepository.save(requirement).getId());
+        }
+        jobService.enqueueAll(ids, user.getId(), RequirementJobService.BATCH_PRIORITY);
+        return ids;
+    }
+
+    //отдельный узел: свой идентификатор, свой исполнитель и учет арендованных задач
+    private RequirementPipelineService worker(String workerId) {
+        PipelineExecutor executor = new PipelineExecutor(4, 100, meterRegistry, tracer);
+        executors.add(executor);
+        return new RequirementPipelineService(analysisService, generationService, validationService,
+                requirementRepository, codeRepository, statusService, jobService, executor,
+                circuitBreakerRegistry, metrics, tracer, workerId,
+                100, 3, 30000, 4, 8, 4, 8);
+    }
+
+    private static String key(Long requirementId, JobStage stage) {
+        return requirementId + ":" + stage;
+    }
+}